@@ -0,0 +1,425 @@
+package com.scalemotion.tsvbean;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Streaming group-by aggregation driven by serializer schema. Works over beans or over raw lines; for lines
+ * only key and measure columns are parsed.
+ * <p/>
+ * Group keys are encoded to longs (enum ordinals, integral values, dates as millis; other values are
+ * dictionary encoded) and groups are kept in an open addressing table, while counts, sums, minimums and
+ * maximums are kept in primitive arrays indexed by group. There's no allocation per increment.
+ * <p/>
+ * Configuration is frozen when the first result is created: group-by fields and measures can't be added after
+ * that, and the aggregation may be shared between threads. Each thread fills its own {@link AggregationResult},
+ * results are combined with {@link AggregationResult#merge(AggregationResult)}.
+ * <pre>
+ * AggregationResult&lt;Event&gt; r = new Aggregation&lt;Event&gt;(serializer).groupBy("status").sum("bytes").aggregateLines(lines);
+ * </pre>
+ *
+ * @param <T> type of bean
+ */
+public class Aggregation<T> {
+    private final BeanSerializer<T> serializer;
+    private final List<Key> keys = new ArrayList<Key>();
+    private final List<Measure> measures = new ArrayList<Measure>();
+    //copies of keys and measures made by the first newResult(), not null means configuration is frozen
+    private volatile Frozen frozen;
+    private volatile Columns columns;
+
+    public Aggregation(BeanSerializer<T> serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * Adds group-by fields
+     * @param fields field names
+     * @return this aggregation
+     */
+    public synchronized Aggregation<T> groupBy(String... fields) {
+        checkNotFrozen();
+        for (String f : fields) {
+            keys.add(new Key(serializer.getField(f)));
+        }
+        return this;
+    }
+
+    /**
+     * Adds sum of numeric field. Sum is kept as long for integral fields and as double for floating point ones
+     * @param field field name
+     * @return this aggregation
+     */
+    public Aggregation<T> sum(String field) {
+        return measure(field, Measure.SUM);
+    }
+
+    /**
+     * Adds minimum of numeric or date field
+     * @param field field name
+     * @return this aggregation
+     */
+    public Aggregation<T> min(String field) {
+        return measure(field, Measure.MIN);
+    }
+
+    /**
+     * Adds maximum of numeric or date field
+     * @param field field name
+     * @return this aggregation
+     */
+    public Aggregation<T> max(String field) {
+        return measure(field, Measure.MAX);
+    }
+
+    private synchronized Aggregation<T> measure(String field, int op) {
+        checkNotFrozen();
+        measures.add(new Measure(serializer.getField(field), op));
+        return this;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen != null) {
+            throw new IllegalStateException("Aggregation can't be changed after result was created");
+        }
+    }
+
+    /**
+     * Creates empty result. Measures are numbered in order they were added. Freezes configuration
+     * @return empty result
+     */
+    public AggregationResult<T> newResult() {
+        freeze();
+        return new AggregationResult<T>(this);
+    }
+
+    private Frozen freeze() {
+        Frozen f = frozen;
+        if (f == null) {
+            synchronized (this) {
+                f = frozen;
+                if (f == null) {
+                    f = new Frozen(keys.toArray(new Key[keys.size()]), measures.toArray(new Measure[measures.size()]));
+                    frozen = f;
+                }
+            }
+        }
+        return f;
+    }
+
+    /**
+     * Aggregates beans in current thread
+     * @param beans beans
+     * @return result
+     */
+    public AggregationResult<T> aggregate(Iterable<T> beans) {
+        AggregationResult<T> result = newResult();
+        for (T bean : beans) {
+            result.add(bean);
+        }
+        return result;
+    }
+
+    /**
+     * Aggregates lines in current thread
+     * @param lines lines in serializer format
+     * @return result
+     */
+    public AggregationResult<T> aggregateLines(Iterable<String> lines) {
+        AggregationResult<T> result = newResult();
+        for (String line : lines) {
+            result.addLine(line);
+        }
+        return result;
+    }
+
+    /**
+     * Aggregates beans in parallel. Beans are read in current thread and split into chunks; each chunk
+     * is aggregated to a partial result by executor, partials are merged in current thread
+     * @param beans beans
+     * @param executor executor
+     * @param chunkSize number of beans in chunk
+     * @return result
+     */
+    public AggregationResult<T> aggregate(Iterator<T> beans, ExecutorService executor, int chunkSize) {
+        return aggregate(beans, new Adder<T, T>() {
+            @Override
+            public void add(AggregationResult<T> result, T bean) {
+                result.add(bean);
+            }
+        }, executor, chunkSize);
+    }
+
+    /**
+     * Aggregates lines in parallel, see {@link #aggregate(Iterator, ExecutorService, int)}
+     * @param lines lines in serializer format
+     * @param executor executor
+     * @param chunkSize number of lines in chunk
+     * @return result
+     */
+    public AggregationResult<T> aggregateLines(Iterator<String> lines, ExecutorService executor, int chunkSize) {
+        return aggregate(lines, new Adder<T, String>() {
+            @Override
+            public void add(AggregationResult<T> result, String line) {
+                result.addLine(line);
+            }
+        }, executor, chunkSize);
+    }
+
+    /**
+     * Adds item of parallel aggregation to partial result
+     */
+    private static interface Adder<T, E> {
+        void add(AggregationResult<T> result, E item);
+    }
+
+    private <E> AggregationResult<T> aggregate(Iterator<E> items, final Adder<T, E> adder, ExecutorService executor, int chunkSize) {
+        int maxPending = Runtime.getRuntime().availableProcessors() * 2;
+        AggregationResult<T> result = newResult();
+        LinkedList<Future<AggregationResult<T>>> pending = new LinkedList<Future<AggregationResult<T>>>();
+        try {
+            while (items.hasNext()) {
+                final List<E> chunk = new ArrayList<E>(chunkSize);
+                while (items.hasNext() && chunk.size() < chunkSize) {
+                    chunk.add(items.next());
+                }
+                pending.add(executor.submit(new Callable<AggregationResult<T>>() {
+                    @Override
+                    public AggregationResult<T> call() {
+                        AggregationResult<T> partial = newResult();
+                        for (E item : chunk) {
+                            adder.add(partial, item);
+                        }
+                        return partial;
+                    }
+                }));
+                if (pending.size() >= maxPending) {
+                    result.merge(pending.removeFirst().get());
+                }
+            }
+            while (!pending.isEmpty()) {
+                result.merge(pending.removeFirst().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Aggregation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            for (Future<AggregationResult<T>> f : pending) {
+                f.cancel(true);
+            }
+        }
+        return result;
+    }
+
+    BeanSerializer<T> getSerializer() {
+        return serializer;
+    }
+
+    Key[] getKeys() {
+        return freeze().keys;
+    }
+
+    Measure[] getMeasures() {
+        return freeze().measures;
+    }
+
+    /**
+     * Returns positions of key and measure fields in given header
+     * @param fields header
+     * @return columns
+     */
+    Columns getColumns(List<BeanSerializer.FieldInfo> fields) {
+        Columns c = columns;
+        if (c == null || c.fields != fields) {
+            Frozen f = freeze();
+            c = new Columns(fields, f.keys, f.measures);
+            columns = c;
+        }
+        return c;
+    }
+
+    private static final class Frozen {
+        private final Key[] keys;
+        private final Measure[] measures;
+
+        private Frozen(Key[] keys, Measure[] measures) {
+            this.keys = keys;
+            this.measures = measures;
+        }
+    }
+
+    static final class Columns {
+        private final List<BeanSerializer.FieldInfo> fields;
+        //column -> key index or -1
+        final int[] keyOf;
+        //column -> indexes of measures or null
+        final int[][] measuresOf;
+        final int lastColumn;
+
+        private Columns(List<BeanSerializer.FieldInfo> fields, Key[] keys, Measure[] measures) {
+            this.fields = fields;
+            keyOf = new int[fields.size()];
+            measuresOf = new int[fields.size()][];
+            Arrays.fill(keyOf, -1);
+            int last = -1;
+            for (int k = 0; k < keys.length; k++) {
+                int column = fields.indexOf(keys[k].field);
+                if (column < 0) {
+                    throw new IllegalStateException("Group-by field " + keys[k].field + " is not in header");
+                }
+                keyOf[column] = k;
+                last = Math.max(last, column);
+            }
+            for (int m = 0; m < measures.length; m++) {
+                int column = fields.indexOf(measures[m].field);
+                if (column < 0) {
+                    throw new IllegalStateException("Aggregated field " + measures[m].field + " is not in header");
+                }
+                int[] prev = measuresOf[column];
+                int[] next = prev == null ? new int[1] : Arrays.copyOf(prev, prev.length + 1);
+                next[next.length - 1] = m;
+                measuresOf[column] = next;
+                last = Math.max(last, column);
+            }
+            lastColumn = last;
+        }
+    }
+
+    /**
+     * Group-by field. Encodes non-null values to longs and back, nulls are tracked by {@link AggregationResult}
+     * in a separate bitmask since every long may be a real value
+     */
+    static final class Key {
+        private static final int ENUM = 0;
+        private static final int INTEGRAL = 1;
+        private static final int DATE = 2;
+        private static final int DICTIONARY = 3;
+        final BeanSerializer.FieldInfo field;
+        private final int kind;
+        private final Object[] enumConstants;
+        private final Class scalarClass;
+        private final ConcurrentHashMap<Object, Integer> dictionary = new ConcurrentHashMap<Object, Integer>();
+        private final List<Object> reverseDictionary = new ArrayList<Object>();
+
+        Key(BeanSerializer.FieldInfo field) {
+            this.field = field;
+            DataType type = field.getType();
+            Class scalar = type instanceof ScalarType ? ((ScalarType) type).getScalarClass() : null;
+            if (type instanceof EnumType) {
+                kind = ENUM;
+                enumConstants = ((EnumType) type).getEnumClass().getEnumConstants();
+            } else if (type instanceof DateTimeType) {
+                kind = DATE;
+                enumConstants = null;
+            } else if (scalar == Long.class || scalar == Integer.class || scalar == Short.class
+                    || scalar == Byte.class || scalar == Boolean.class || scalar == Character.class) {
+                kind = INTEGRAL;
+                enumConstants = null;
+            } else {
+                kind = DICTIONARY;
+                enumConstants = null;
+            }
+            scalarClass = scalar;
+        }
+
+        long encode(Object value) {
+            switch (kind) {
+                case ENUM:
+                    return ((Enum) value).ordinal();
+                case DATE:
+                    return ((Date) value).getTime();
+                case INTEGRAL:
+                    if (value instanceof Boolean) {
+                        return (Boolean) value ? 1 : 0;
+                    } else if (value instanceof Character) {
+                        return (Character) value;
+                    }
+                    return ((Number) value).longValue();
+                default:
+                    Integer id = dictionary.get(value);
+                    if (id == null) {
+                        id = register(value);
+                    }
+                    return id;
+            }
+        }
+
+        /**
+         * @param value value
+         * @return true if value can be encoded without registering it in dictionary
+         */
+        boolean isKnown(Object value) {
+            return value == null || kind != DICTIONARY || dictionary.containsKey(value);
+        }
+
+        private synchronized Integer register(Object value) {
+            Integer id = dictionary.get(value);
+            if (id == null) {
+                id = reverseDictionary.size();
+                reverseDictionary.add(value);
+                dictionary.put(value, id);
+            }
+            return id;
+        }
+
+        Object decode(long code) {
+            switch (kind) {
+                case ENUM:
+                    return enumConstants[(int) code];
+                case DATE:
+                    return new Date(code);
+                case INTEGRAL:
+                    if (scalarClass == Integer.class) {
+                        return (int) code;
+                    } else if (scalarClass == Short.class) {
+                        return (short) code;
+                    } else if (scalarClass == Byte.class) {
+                        return (byte) code;
+                    } else if (scalarClass == Boolean.class) {
+                        return code != 0;
+                    } else if (scalarClass == Character.class) {
+                        return (char) code;
+                    }
+                    return code;
+                default:
+                    synchronized (this) {
+                        return reverseDictionary.get((int) code);
+                    }
+            }
+        }
+    }
+
+    /**
+     * Aggregated field
+     */
+    static final class Measure {
+        static final int SUM = 0;
+        static final int MIN = 1;
+        static final int MAX = 2;
+        final BeanSerializer.FieldInfo field;
+        final int op;
+        final boolean floating;
+
+        Measure(BeanSerializer.FieldInfo field, int op) {
+            this.field = field;
+            this.op = op;
+            DataType type = field.getType();
+            Class scalar = type instanceof ScalarType ? ((ScalarType) type).getScalarClass() : null;
+            if (scalar == Double.class || scalar == Float.class) {
+                floating = true;
+            } else if (scalar == Long.class || scalar == Integer.class || scalar == Short.class || scalar == Byte.class) {
+                floating = false;
+            } else if (type instanceof DateTimeType && op != SUM) {
+                floating = false;
+            } else {
+                throw new IllegalArgumentException("Field " + field + " (" + type.describe() + ") can't be aggregated");
+            }
+        }
+
+        static long longValue(Object value) {
+            return value instanceof Date ? ((Date) value).getTime() : ((Number) value).longValue();
+        }
+    }
+}
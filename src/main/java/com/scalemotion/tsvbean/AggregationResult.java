@@ -0,0 +1,295 @@
+package com.scalemotion.tsvbean;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Groups and accumulated values of {@link Aggregation}. Groups are numbered from 0 to {@link #size()} - 1,
+ * measures are numbered in order they were added to aggregation. Null values are not accumulated;
+ * minimum (maximum) of group without values is the maximal (minimal) value of its type.
+ * <p/>
+ * Not thread safe: use one result per thread and {@link #merge(AggregationResult)} them.
+ *
+ * @param <T> type of bean
+ */
+public class AggregationResult<T> {
+    private static final int INITIAL_CAPACITY = 64;
+    private final Aggregation<T> aggregation;
+    private final Aggregation.Key[] keys;
+    private final Aggregation.Measure[] measures;
+    //tuple of group is encoded keys followed by bitmask of null keys
+    private final LongTupleTable groups;
+    private long[] counts = new long[INITIAL_CAPACITY];
+    private final long[][] longs;
+    private final double[][] doubles;
+    //buffers reused between rows
+    private final long[] tuple;
+    private final Object[] measureValues;
+
+    AggregationResult(Aggregation<T> aggregation) {
+        this.aggregation = aggregation;
+        this.keys = aggregation.getKeys();
+        this.measures = aggregation.getMeasures();
+        this.groups = new LongTupleTable(keys.length + (keys.length + 63) / 64, INITIAL_CAPACITY);
+        this.longs = new long[measures.length][];
+        this.doubles = new double[measures.length][];
+        for (int m = 0; m < measures.length; m++) {
+            if (measures[m].floating) {
+                doubles[m] = new double[INITIAL_CAPACITY];
+            } else {
+                longs[m] = new long[INITIAL_CAPACITY];
+            }
+        }
+        this.tuple = new long[groups.width()];
+        this.measureValues = new Object[measures.length];
+    }
+
+    /**
+     * Accumulates bean
+     * @param bean bean
+     */
+    public void add(T bean) {
+        for (int k = 0; k < keys.length; k++) {
+            setKey(tuple, k, keys[k].field.get(bean));
+        }
+        int group = group();
+        counts[group]++;
+        for (int m = 0; m < measures.length; m++) {
+            accumulate(group, m, measures[m].field.get(bean));
+        }
+    }
+
+    /**
+     * Accumulates line. Only key and measure columns are parsed; line is not tokenized after the last of them
+     * @param line line in serializer format
+     */
+    public void addLine(String line) {
+        BeanSerializer<T> serializer = aggregation.getSerializer();
+        List<BeanSerializer.FieldInfo> fields = serializer.getFieldList();
+        Aggregation.Columns columns = aggregation.getColumns(fields);
+        String separator = serializer.getSeparator();
+        int start = 0;
+        for (int column = 0; column <= columns.lastColumn; column++) {
+            if (start > line.length()) {
+                throw new IllegalStateException("Too few fields in line (" + column + "). It should be equal to fields in object (" + fields.size() + "). Line: '" + line + "'");
+            }
+            int end = line.indexOf(separator, start);
+            if (end < 0) {
+                end = line.length();
+            }
+            int k = columns.keyOf[column];
+            int[] ms = columns.measuresOf[column];
+            if (k >= 0 || ms != null) {
+                Object value = fields.get(column).getType().parse(line.substring(start, end));
+                if (k >= 0) {
+                    setKey(tuple, k, value);
+                }
+                if (ms != null) {
+                    for (int m : ms) {
+                        measureValues[m] = value;
+                    }
+                }
+            }
+            start = end + separator.length();
+        }
+        int group = group();
+        counts[group]++;
+        for (int m = 0; m < measures.length; m++) {
+            accumulate(group, m, measureValues[m]);
+            measureValues[m] = null;
+        }
+    }
+
+    /**
+     * Merges other result of the same aggregation into this one
+     * @param other other result
+     */
+    public void merge(AggregationResult<T> other) {
+        if (other.aggregation != aggregation) {
+            throw new IllegalArgumentException("Can't merge results of different aggregations");
+        }
+        for (int g = 0; g < other.size(); g++) {
+            for (int i = 0; i < tuple.length; i++) {
+                tuple[i] = other.groups.get(g, i);
+            }
+            int group = group();
+            counts[group] += other.counts[g];
+            for (int m = 0; m < measures.length; m++) {
+                if (measures[m].floating) {
+                    doubles[m][group] = combine(measures[m].op, doubles[m][group], other.doubles[m][g]);
+                } else {
+                    longs[m][group] = combine(measures[m].op, longs[m][group], other.longs[m][g]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of groups
+     */
+    public int size() {
+        return groups.size();
+    }
+
+    /**
+     * Finds group by key values
+     * @param keyValues values of group-by fields
+     * @return group or -1 if there's no such group
+     */
+    public int find(Object... keyValues) {
+        if (keyValues.length != keys.length) {
+            throw new IllegalArgumentException("Expected " + keys.length + " key values, got " + keyValues.length);
+        }
+        long[] t = new long[groups.width()];
+        for (int k = 0; k < keys.length; k++) {
+            if (!keys[k].isKnown(keyValues[k])) {
+                return -1;
+            }
+            setKey(t, k, keyValues[k]);
+        }
+        return groups.get(t);
+    }
+
+    /**
+     * Returns value of group-by field
+     * @param group group
+     * @param key index of group-by field
+     * @return value
+     */
+    public Object getKey(int group, int key) {
+        if ((groups.get(group, keys.length + (key >> 6)) & (1L << key)) != 0) {
+            return null;
+        }
+        return keys[key].decode(groups.get(group, key));
+    }
+
+    /**
+     * @param group group
+     * @return number of accumulated rows in group
+     */
+    public long getCount(int group) {
+        return counts[group];
+    }
+
+    /**
+     * Returns measure as long. Dates are returned as millis
+     * @param group group
+     * @param measure index of measure
+     * @return value
+     */
+    public long getLong(int group, int measure) {
+        return measures[measure].floating ? (long) doubles[measure][group] : longs[measure][group];
+    }
+
+    /**
+     * Returns measure as double
+     * @param group group
+     * @param measure index of measure
+     * @return value
+     */
+    public double getDouble(int group, int measure) {
+        return measures[measure].floating ? doubles[measure][group] : longs[measure][group];
+    }
+
+    /**
+     * Puts encoded key value to tuple and updates null bit of the key
+     */
+    private void setKey(long[] t, int k, Object value) {
+        int word = keys.length + (k >> 6);
+        if (value == null) {
+            t[k] = 0;
+            t[word] |= 1L << k;
+        } else {
+            t[k] = keys[k].encode(value);
+            t[word] &= ~(1L << k);
+        }
+    }
+
+    private int group() {
+        int size = groups.size();
+        int group = groups.getOrAdd(tuple);
+        if (group == size) {
+            ensureCapacity(group + 1);
+            for (int m = 0; m < measures.length; m++) {
+                if (measures[m].floating) {
+                    doubles[m][group] = initialDouble(measures[m].op);
+                } else {
+                    longs[m][group] = initialLong(measures[m].op);
+                }
+            }
+        }
+        return group;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= counts.length) {
+            return;
+        }
+        int newCapacity = counts.length * 2;
+        counts = Arrays.copyOf(counts, newCapacity);
+        for (int m = 0; m < measures.length; m++) {
+            if (measures[m].floating) {
+                doubles[m] = Arrays.copyOf(doubles[m], newCapacity);
+            } else {
+                longs[m] = Arrays.copyOf(longs[m], newCapacity);
+            }
+        }
+    }
+
+    private void accumulate(int group, int m, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (measures[m].floating) {
+            double[] values = doubles[m];
+            values[group] = combine(measures[m].op, values[group], ((Number) value).doubleValue());
+        } else {
+            long[] values = longs[m];
+            values[group] = combine(measures[m].op, values[group], Aggregation.Measure.longValue(value));
+        }
+    }
+
+    private static long initialLong(int op) {
+        switch (op) {
+            case Aggregation.Measure.MIN:
+                return Long.MAX_VALUE;
+            case Aggregation.Measure.MAX:
+                return Long.MIN_VALUE;
+            default:
+                return 0;
+        }
+    }
+
+    private static double initialDouble(int op) {
+        switch (op) {
+            case Aggregation.Measure.MIN:
+                return Double.POSITIVE_INFINITY;
+            case Aggregation.Measure.MAX:
+                return Double.NEGATIVE_INFINITY;
+            default:
+                return 0;
+        }
+    }
+
+    private static long combine(int op, long a, long b) {
+        switch (op) {
+            case Aggregation.Measure.MIN:
+                return Math.min(a, b);
+            case Aggregation.Measure.MAX:
+                return Math.max(a, b);
+            default:
+                return a + b;
+        }
+    }
+
+    private static double combine(int op, double a, double b) {
+        switch (op) {
+            case Aggregation.Measure.MIN:
+                return Math.min(a, b);
+            case Aggregation.Measure.MAX:
+                return Math.max(a, b);
+            default:
+                return a + b;
+        }
+    }
+}
@@ -0,0 +1,468 @@
+package com.scalemotion.tsvbean;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of beans parsed from lines of a file, keyed by byte offset of the line. Cache is split into
+ * stripes by offset; every stripe is an LRU map guarded by its own lock, so concurrent readers rarely contend.
+ * Every stripe holds at most its share of <code>maxBytes</code> weight, entries are weighted by estimated
+ * size of bean in memory (or by size of its binary form in compact mode).
+ * <p/>
+ * In compact mode beans are kept in binary form (see {@link BinaryRecords}) and a new bean is decoded on every
+ * hit, which is still much cheaper than reading and parsing the line. Otherwise the same cached bean instance is
+ * returned to all callers, so callers must not modify it.
+ * <p/>
+ * Beans loaded by offset are also registered by values of their {@link KeyField} fields and may be looked up with
+ * {@link #getByKey(Object...)}. Lines are read with positional reads, so the cache is safe for concurrent use;
+ * concurrent misses of the same offset read the line once, other callers wait for it. A line invalidated while it's
+ * being loaded isn't cached by that load.
+ * <pre>
+ * BeanCache&lt;Account&gt; cache = new BeanCache&lt;Account&gt;(serializer, file, 64 * 1024 * 1024);
+ * Account account = cache.get(offset);
+ * </pre>
+ *
+ * @param <T> type of bean
+ */
+public class BeanCache<T> implements Closeable {
+    /**
+     * Estimated overhead of cache entry: map entry, entry object, boxed offset
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int READ_SIZE = 4096;
+    private final BeanSerializer<T> serializer;
+    private final List<BeanSerializer.FieldInfo> fields;
+    private final List<BeanSerializer.FieldInfo> keyFields;
+    //columns of key fields in fields
+    private final int[] keyColumns;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final boolean compact;
+    private final Segment[] segments;
+    private final ConcurrentHashMap<List<Object>, Long> keys = new ConcurrentHashMap<List<Object>, Long>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final ThreadLocal<ByteBuffer> readBuffer = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate(READ_SIZE);
+        }
+    };
+
+    public BeanCache(BeanSerializer<T> serializer, File file, long maxBytes) throws IOException {
+        this(serializer, file, maxBytes, 16, false);
+    }
+
+    /**
+     * @param serializer serializer of lines
+     * @param file file
+     * @param maxBytes maximal estimated size of cached beans
+     * @param stripes number of independently locked stripes
+     * @param compact whether to keep beans in binary form
+     * @throws IOException if file can't be opened
+     */
+    public BeanCache(BeanSerializer<T> serializer, File file, long maxBytes, int stripes, boolean compact) throws IOException {
+        this.serializer = serializer;
+        this.fields = serializer.getFieldList();
+        this.keyFields = serializer.getKeyFields();
+        this.keyColumns = new int[keyFields.size()];
+        for (int i = 0; i < keyColumns.length; i++) {
+            keyColumns[i] = fields.indexOf(keyFields.get(i));
+            if (keyColumns[i] < 0) {
+                throw new IllegalStateException("Key field " + keyFields.get(i) + " is not in header");
+            }
+        }
+        this.compact = compact;
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+        this.segments = new Segment[stripes];
+        for (int i = 0; i < stripes; i++) {
+            segments[i] = new Segment(Math.max(1, maxBytes / stripes), keys, evictions);
+        }
+    }
+
+    /**
+     * Returns bean of the line starting at offset, reading and parsing the line if it's not cached
+     * @param offset offset of the first byte of line
+     * @return bean
+     * @throws IOException if file can't be read
+     */
+    public T get(final long offset) throws IOException {
+        Segment segment = segment(offset);
+        Entry cached = segment.get(offset);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return value(cached);
+        }
+        misses.incrementAndGet();
+        FutureTask<Entry> load = new FutureTask<Entry>(new Callable<Entry>() {
+            @Override
+            public Entry call() throws IOException {
+                return load(offset);
+            }
+        });
+        FutureTask<Entry> running = segment.startLoading(offset, load);
+        if (running == null) {
+            try {
+                load.run();
+            } finally {
+                segment.finishLoading(offset, load);
+            }
+            running = load;
+        }
+        Entry entry;
+        try {
+            entry = running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for line at offset " + offset);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        }
+        return value(entry);
+    }
+
+    /**
+     * Reads and parses line. Entry is cached by {@link Segment#finishLoading(long, FutureTask)}
+     */
+    private Entry load(long offset) throws IOException {
+        ByteBuilder line = readLine(offset);
+        Object[] values = serializer.parseValues(fields, line.getBytes(), 0, line.length());
+        Entry entry = compact ? new Entry(encode(values)) : new Entry(toBean(values), estimate(values));
+        if (keyColumns.length > 0) {
+            entry.key = key(values);
+        }
+        return entry;
+    }
+
+    /**
+     * @param offset offset of the first byte of line
+     * @return cached bean or null if line is not cached
+     */
+    public T getIfPresent(long offset) {
+        Entry entry = segment(offset).get(offset);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return value(entry);
+    }
+
+    /**
+     * Looks up cached bean by values of its {@link KeyField} fields. Only beans which were loaded by offset
+     * and are still cached can be found
+     * @param key values of key fields in order of their declaration
+     * @return bean or null if there's no cached bean with given key
+     */
+    public T getByKey(Object... key) {
+        Long offset = keys.get(Arrays.asList(key));
+        if (offset == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        Entry entry = segment(offset).get(offset);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return value(entry);
+    }
+
+    /**
+     * Removes line from cache
+     * @param offset offset of the first byte of line
+     */
+    public void invalidate(long offset) {
+        Entry entry = segment(offset).remove(offset);
+        if (entry != null && entry.key != null) {
+            keys.remove(entry.key, offset);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return number of cached beans
+     */
+    public int size() {
+        int size = 0;
+        for (Segment s : segments) {
+            size += s.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return estimated size of cached beans
+     */
+    public long getWeight() {
+        long weight = 0;
+        for (Segment s : segments) {
+            weight += s.getWeight();
+        }
+        return weight;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Segment s : segments) {
+            s.clear();
+        }
+        keys.clear();
+        file.close();
+    }
+
+    private Segment segment(long offset) {
+        return segments[(int) ((LongTupleTable.mix(offset) >>> 1) % segments.length)];
+    }
+
+    @SuppressWarnings("unchecked")
+    private T value(Entry entry) {
+        if (!compact) {
+            return (T) entry.value;
+        }
+        byte[] bytes = (byte[]) entry.value;
+        try {
+            return toBean(BinaryRecords.readRecord(fields, new DataInputStream(new ByteArrayInputStream(bytes))));
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private T toBean(Object[] values) {
+        T bean = serializer.newInstance();
+        serializer.setValues(fields, bean, values);
+        return bean;
+    }
+
+    private byte[] encode(Object[] values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            BinaryRecords.writeRecord(fields, values, new DataOutputStream(out));
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        return out.toByteArray();
+    }
+
+    private List<Object> key(Object[] values) {
+        Object[] key = new Object[keyColumns.length];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = values[keyColumns[i]];
+        }
+        return Arrays.asList(key);
+    }
+
+    /**
+     * Reads line starting at offset with positional reads, which don't move file pointer
+     */
+    private ByteBuilder readLine(long offset) throws IOException {
+        ByteBuilder line = new ByteBuilder(READ_SIZE);
+        ByteBuffer buffer = readBuffer.get();
+        long position = offset;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                if (position == offset) {
+                    throw new IllegalArgumentException("Offset " + offset + " is beyond the end of file");
+                }
+                break;
+            }
+            byte[] bytes = buffer.array();
+            int end = 0;
+            while (end < read && bytes[end] != '\n') {
+                end++;
+            }
+            line.append(bytes, 0, end);
+            if (end < read) {
+                break;
+            }
+            position += read;
+        }
+        if (line.length() > 0 && line.getBytes()[line.length() - 1] == '\r') {
+            line.setLength(line.length() - 1);
+        }
+        return line;
+    }
+
+    /**
+     * Estimates size of bean in memory by sizes of its field values
+     * @param values values
+     * @return estimated size in bytes
+     */
+    static int estimate(Object[] values) {
+        int size = ENTRY_OVERHEAD + 16 + 4 * values.length;
+        for (Object v : values) {
+            if (v == null || v instanceof Enum || v instanceof Boolean) {
+                continue;
+            }
+            if (v instanceof String) {
+                size += 40 + 2 * ((String) v).length();
+            } else if (v instanceof Number || v instanceof Character || v instanceof Date) {
+                size += 24;
+            } else {
+                size += 48;
+            }
+        }
+        return size;
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final int weight;
+        private List<Object> key;
+
+        private Entry(Object value, int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+
+        private Entry(byte[] compact) {
+            this(compact, ENTRY_OVERHEAD + 16 + compact.length);
+        }
+    }
+
+    /**
+     * Stripe of the cache: LRU map with weight limit
+     */
+    private static class Segment {
+        private static final Runnable NOTHING = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        private final long maxWeight;
+        private final ConcurrentHashMap<List<Object>, Long> keys;
+        private final AtomicLong evictions;
+        private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+        //lines being loaded, guarded by this
+        private final Map<Long, FutureTask<Entry>> loading = new HashMap<Long, FutureTask<Entry>>();
+        private long weight = 0;
+
+        private Segment(long maxWeight, ConcurrentHashMap<List<Object>, Long> keys, AtomicLong evictions) {
+            this.maxWeight = maxWeight;
+            this.keys = keys;
+            this.evictions = evictions;
+        }
+
+        private synchronized Entry get(long offset) {
+            return entries.get(offset);
+        }
+
+        private synchronized void put(long offset, Entry entry) {
+            Entry old = entries.put(offset, entry);
+            if (old != null) {
+                weight -= old.weight;
+            }
+            weight += entry.weight;
+            Iterator<Map.Entry<Long, Entry>> it = entries.entrySet().iterator();
+            //the entry just put is the most recent one and is kept even if it's heavier than the limit
+            while (weight > maxWeight && entries.size() > 1) {
+                Map.Entry<Long, Entry> eldest = it.next();
+                it.remove();
+                weight -= eldest.getValue().weight;
+                evictions.incrementAndGet();
+                if (eldest.getValue().key != null) {
+                    keys.remove(eldest.getValue().key, eldest.getKey());
+                }
+            }
+        }
+
+        /**
+         * Registers load of line unless the line is already being loaded
+         * @return running load of the line or null if given load is registered and should be run by caller
+         */
+        private synchronized FutureTask<Entry> startLoading(long offset, FutureTask<Entry> load) {
+            FutureTask<Entry> running = loading.get(offset);
+            if (running != null) {
+                return running;
+            }
+            Entry entry = entries.get(offset);
+            if (entry != null) {
+                //loaded since the caller missed it
+                FutureTask<Entry> loaded = new FutureTask<Entry>(NOTHING, entry);
+                loaded.run();
+                return loaded;
+            }
+            loading.put(offset, load);
+            return null;
+        }
+
+        /**
+         * Caches loaded entry unless the line was invalidated while it was loaded
+         * @param load completed load registered by {@link #startLoading(long, FutureTask)}
+         */
+        private synchronized void finishLoading(long offset, FutureTask<Entry> load) {
+            if (loading.get(offset) != load) {
+                //invalidated, entry may be stale
+                return;
+            }
+            loading.remove(offset);
+            Entry entry;
+            try {
+                entry = load.get();
+            } catch (ExecutionException e) {
+                //failure is reported to callers waiting for the load
+                return;
+            } catch (InterruptedException e) {
+                //never happens, load is done
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (entry.key != null) {
+                //registered before the entry becomes visible, so eviction always sees the key
+                keys.put(entry.key, offset);
+            }
+            put(offset, entry);
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+            weight = 0;
+        }
+
+        private synchronized Entry remove(long offset) {
+            //running load won't cache what it has read
+            loading.remove(offset);
+            Entry entry = entries.remove(offset);
+            if (entry != null) {
+                weight -= entry.weight;
+            }
+            return entry;
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+
+        private synchronized long getWeight() {
+            return weight;
+        }
+    }
+}
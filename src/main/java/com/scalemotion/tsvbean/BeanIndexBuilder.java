@@ -0,0 +1,264 @@
+package com.scalemotion.tsvbean;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Builds typed in-memory indexes over beans, driven by serializer schema:
+ * <ul>
+ * <li>{@link LongHashIndex} for lookups by integral, floating point or date field</li>
+ * <li>{@link SortedIndex} for range queries by the same kinds of fields</li>
+ * <li>{@link EnumIndex} bitmaps for enum fields</li>
+ * </ul>
+ * Beans may be added one by one while streaming ({@link #add(Object)} and {@link #build()}), or a loaded list may
+ * be indexed in parallel ({@link #build(List, ExecutorService, int)}). Besides indexes themselves, build holds
+ * a long key and a null flag per bean for one index at a time. Not thread safe.
+ * <pre>
+ * BeanIndexes&lt;Account&gt; idx = new BeanIndexBuilder&lt;Account&gt;(serializer).hash("id").sorted("created").enums("status").build(accounts, executor, 100000);
+ * List&lt;Account&gt; found = idx.hash("id").get(42L);
+ * </pre>
+ *
+ * @param <T> type of bean
+ */
+public class BeanIndexBuilder<T> {
+    private static final int HASH = 0;
+    private static final int SORTED = 1;
+    private static final int ENUM = 2;
+    private final BeanSerializer<T> serializer;
+    private final List<Spec> specs = new ArrayList<Spec>();
+    //state of streaming build
+    private List<T> beans = new ArrayList<T>();
+    private long[][] keys = new long[0][];
+    private boolean[][] nulls = new boolean[0][];
+
+    public BeanIndexBuilder(BeanSerializer<T> serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * Adds hash index
+     * @param field integral, floating point or date field
+     * @return this builder
+     */
+    public BeanIndexBuilder<T> hash(String field) {
+        return index(field, HASH);
+    }
+
+    /**
+     * Adds sorted index
+     * @param field integral, floating point or date field
+     * @return this builder
+     */
+    public BeanIndexBuilder<T> sorted(String field) {
+        return index(field, SORTED);
+    }
+
+    /**
+     * Adds bitmap index
+     * @param field enum field
+     * @return this builder
+     */
+    public BeanIndexBuilder<T> enums(String field) {
+        return index(field, ENUM);
+    }
+
+    private BeanIndexBuilder<T> index(String field, int kind) {
+        if (!beans.isEmpty()) {
+            throw new IllegalStateException("Indexes can't be added after beans were added");
+        }
+        specs.add(new Spec(serializer.getField(field), kind));
+        keys = new long[specs.size()][16];
+        nulls = new boolean[specs.size()][16];
+        return this;
+    }
+
+    /**
+     * Adds bean to indexes being built. Keys are extracted immediately
+     * @param bean bean
+     */
+    public void add(T bean) {
+        int pos = beans.size();
+        beans.add(bean);
+        for (int s = 0; s < specs.size(); s++) {
+            if (pos == keys[s].length) {
+                keys[s] = Arrays.copyOf(keys[s], pos * 2);
+                nulls[s] = Arrays.copyOf(nulls[s], pos * 2);
+            }
+            specs.get(s).extract(bean, keys[s], nulls[s], pos);
+        }
+    }
+
+    /**
+     * Builds indexes of added beans. Builder is reset afterwards
+     * @return indexes
+     */
+    public BeanIndexes<T> build() {
+        List<T> indexed = beans;
+        Object[] built = new Object[specs.size()];
+        for (int s = 0; s < specs.size(); s++) {
+            //arrays may be longer than list, indexes read only first list.size() elements
+            built[s] = specs.get(s).build(indexed, keys[s], nulls[s]);
+            keys[s] = null;
+            nulls[s] = null;
+        }
+        BeanIndexes<T> res = indexes(indexed, built);
+        beans = new ArrayList<T>();
+        keys = new long[specs.size()][16];
+        nulls = new boolean[specs.size()][16];
+        return res;
+    }
+
+    /**
+     * Builds indexes of the list. Indexes are built one by one: keys of chunks of the list are extracted by
+     * executor, then the index is built by current thread, so keys of only one index are kept at a time
+     * @param list beans. List is referenced by indexes, so it shouldn't be changed afterwards
+     * @param executor executor
+     * @param chunkSize number of beans in chunk
+     * @return indexes
+     */
+    public BeanIndexes<T> build(final List<T> list, ExecutorService executor, int chunkSize) {
+        final int size = list.size();
+        Object[] built = new Object[specs.size()];
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int s = 0; s < specs.size(); s++) {
+            final Spec spec = specs.get(s);
+            final long[] specKeys = new long[size];
+            final boolean[] specNulls = new boolean[size];
+            for (int start = 0; start < size; start += chunkSize) {
+                final int from = start;
+                final int to = Math.min(size, start + chunkSize);
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int pos = from; pos < to; pos++) {
+                            spec.extract(list.get(pos), specKeys, specNulls, pos);
+                        }
+                    }
+                }));
+            }
+            //completion of futures makes extracted keys visible to this thread
+            await(futures);
+            futures.clear();
+            built[s] = spec.build(list, specKeys, specNulls);
+        }
+        return indexes(list, built);
+    }
+
+    @SuppressWarnings("unchecked")
+    private BeanIndexes<T> indexes(List<T> beans, Object[] built) {
+        Map<String, LongHashIndex<T>> hash = new HashMap<String, LongHashIndex<T>>();
+        Map<String, SortedIndex<T>> sorted = new HashMap<String, SortedIndex<T>>();
+        Map<String, EnumIndex<T>> enums = new HashMap<String, EnumIndex<T>>();
+        for (int s = 0; s < specs.size(); s++) {
+            String name = specs.get(s).field.getName();
+            switch (specs.get(s).kind) {
+                case HASH:
+                    hash.put(name, (LongHashIndex<T>) built[s]);
+                    break;
+                case SORTED:
+                    sorted.put(name, (SortedIndex<T>) built[s]);
+                    break;
+                default:
+                    enums.put(name, (EnumIndex<T>) built[s]);
+            }
+        }
+        return new BeanIndexes<T>(beans, hash, sorted, enums);
+    }
+
+    private static void await(List<Future<?>> futures) {
+        try {
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Index build was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            for (Future<?> f : futures) {
+                f.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Converts value to index key. Integral values are kept as is, dates are converted to millis. Floating point
+     * values are converted to long codes which preserve order (IEEE 754 bits with sign-magnitude flipped
+     * to two's complement), -0.0 is the same key as 0.0
+     * @param value number or date
+     * @param floating whether field is floating point
+     * @return key
+     */
+    static long toKey(Object value, boolean floating) {
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        if (value instanceof Character) {
+            return (Character) value;
+        }
+        if (floating) {
+            double d = ((Number) value).doubleValue();
+            //-0.0 == 0.0, but bits differ
+            long bits = Double.doubleToLongBits(d == 0.0 ? 0.0 : d);
+            return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+        }
+        return ((Number) value).longValue();
+    }
+
+    private class Spec {
+        private final BeanSerializer.FieldInfo field;
+        private final int kind;
+        private final boolean floating;
+        private final int enumConstants;
+
+        private Spec(BeanSerializer.FieldInfo field, int kind) {
+            this.field = field;
+            this.kind = kind;
+            DataType type = field.getType();
+            Class scalar = type instanceof ScalarType ? ((ScalarType) type).getScalarClass() : null;
+            if (kind == ENUM) {
+                if (!(type instanceof EnumType)) {
+                    throw new IllegalArgumentException("Field " + field + " (" + type.describe() + ") is not enum");
+                }
+                floating = false;
+                enumConstants = ((EnumType) type).getEnumClass().getEnumConstants().length;
+                return;
+            }
+            enumConstants = 0;
+            if (scalar == Double.class || scalar == Float.class) {
+                floating = true;
+            } else if (scalar == Long.class || scalar == Integer.class || scalar == Short.class || scalar == Byte.class
+                    || scalar == Boolean.class || scalar == Character.class || type instanceof DateTimeType) {
+                floating = false;
+            } else {
+                throw new IllegalArgumentException("Field " + field + " (" + type.describe() + ") can't be indexed by primitive key");
+            }
+        }
+
+        private void extract(T bean, long[] keys, boolean[] nulls, int pos) {
+            Object value = field.get(bean);
+            if (value == null) {
+                nulls[pos] = true;
+            } else {
+                keys[pos] = kind == ENUM ? ((Enum) value).ordinal() : toKey(value, floating);
+            }
+        }
+
+        private Object build(List<T> beans, long[] keys, boolean[] nulls) {
+            switch (kind) {
+                case HASH:
+                    return new LongHashIndex<T>(beans, keys, nulls, floating);
+                case SORTED:
+                    return new SortedIndex<T>(beans, keys, nulls, floating);
+                default:
+                    return new EnumIndex<T>(beans, enumConstants, keys, nulls);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.scalemotion.tsvbean;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes built by {@link BeanIndexBuilder} over the same list of beans. Immutable, safe for concurrent reads.
+ *
+ * @param <T> type of bean
+ */
+public class BeanIndexes<T> {
+    private final List<T> beans;
+    private final Map<String, LongHashIndex<T>> hashIndexes;
+    private final Map<String, SortedIndex<T>> sortedIndexes;
+    private final Map<String, EnumIndex<T>> enumIndexes;
+
+    BeanIndexes(List<T> beans, Map<String, LongHashIndex<T>> hashIndexes, Map<String, SortedIndex<T>> sortedIndexes,
+                Map<String, EnumIndex<T>> enumIndexes) {
+        this.beans = beans;
+        this.hashIndexes = Collections.unmodifiableMap(new HashMap<String, LongHashIndex<T>>(hashIndexes));
+        this.sortedIndexes = Collections.unmodifiableMap(new HashMap<String, SortedIndex<T>>(sortedIndexes));
+        this.enumIndexes = Collections.unmodifiableMap(new HashMap<String, EnumIndex<T>>(enumIndexes));
+    }
+
+    /**
+     * @return indexed beans, bean position in this list is its position in indexes
+     */
+    public List<T> getBeans() {
+        return Collections.unmodifiableList(beans);
+    }
+
+    /**
+     * @param field field name
+     * @return hash index of field
+     */
+    public LongHashIndex<T> hash(String field) {
+        return get(hashIndexes, field);
+    }
+
+    /**
+     * @param field field name
+     * @return sorted index of field
+     */
+    public SortedIndex<T> sorted(String field) {
+        return get(sortedIndexes, field);
+    }
+
+    /**
+     * @param field field name
+     * @return bitmap index of field
+     */
+    public EnumIndex<T> enums(String field) {
+        return get(enumIndexes, field);
+    }
+
+    private static <I> I get(Map<String, I> indexes, String field) {
+        I index = indexes.get(field);
+        if (index == null) {
+            throw new IllegalArgumentException("There's no such index of field '" + field + "'");
+        }
+        return index;
+    }
+}
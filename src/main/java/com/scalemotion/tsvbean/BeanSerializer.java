@@ -6,16 +6,23 @@ import com.google.common.collect.Iterables;
 
 import java.util.*;
 
-public class BeanSerializer<T> implements DataType<T>, ClassAware<T>, ParamsAware  {
+public class BeanSerializer<T> implements DataType<T>, ClassAware<T>, ParamsAware, ByteDataType<T> {
     public static final String DEFAULT_SEPARATOR = "\t";
     private Class<T> cls;
     private String separator = DEFAULT_SEPARATOR;
+    private byte[] separatorBytes = Utf8.encode(DEFAULT_SEPARATOR);
     private LinkedHashMap<String, FieldInfo> fieldsDictionary = new LinkedHashMap<String, FieldInfo>();
     private List<FieldInfo> fieldList = new ArrayList<FieldInfo>();
+    private Map<String, Integer> columnIndex = new HashMap<String, Integer>();
+    private GeneratedSchema<T> schema;
+    private TraversalPlan plan;
+    //whether current header is the default header of generated schema, so its straight-line code may be used
+    private boolean generatedHeader;
 
     public BeanSerializer(Class<T> cls, String separator, String[] header) {
         this.cls = cls;
         this.separator = separator;
+        this.separatorBytes = Utf8.encode(separator);
         buildFieldDictionary();
         setHeader(header);
     }
@@ -42,14 +49,25 @@ public class BeanSerializer<T> implements DataType<T>, ClassAware<T>, ParamsAwar
         if (fieldsDictionary == null) {
             throw new IllegalStateException("buildFieldDictionary() should be called before setHeader()");
         }
-        fieldList = new ArrayList<FieldInfo>();
+        List<FieldInfo> fields = new ArrayList<FieldInfo>();
         for (String h : header) {
             FieldInfo fieldInfo = fieldsDictionary.get(h);
             if (fieldInfo != null) {
-                fieldList.add(fieldInfo);
+                fields.add(fieldInfo);
             }
         }
+        setFieldList(fields);
+    }
 
+    private void setFieldList(List<FieldInfo> fields) {
+        Map<String, Integer> index = new HashMap<String, Integer>();
+        for (int i = 0, fieldsSize = fields.size(); i < fieldsSize; i++) {
+            index.put(fields.get(i).name, i);
+        }
+        fieldList = fields;
+        columnIndex = index;
+        plan = TraversalPlan.compile(fields);
+        generatedHeader = schema != null && fields.equals(schema.getColumns());
     }
 
     private LinkedHashMap<String, FieldInfo> listFields(Class cls, String namePrefix, List<java.lang.reflect.Field> chain) {
@@ -63,27 +81,15 @@ public class BeanSerializer<T> implements DataType<T>, ClassAware<T>, ParamsAwar
                 DataType dataType;
                 Class<? extends DataType> type = annotation.type();
                 if (type == DataType.class) {
-                    //no type specified. Guessing it
-                    if (Date.class.isAssignableFrom(f.getType())) {
-                        type = DateTimeType.class;
-                    } else if (Enum.class.isAssignableFrom(f.getType())) {
-                        type = EnumType.class;
-                    } else {
-                        type = ScalarType.class;
-                    }
+                    type = guessType(f.getType());
                 }
                 try {
                     dataType = newInstance(type);
                 } catch (Exception e) {
                     throw new IllegalStateException("Can't create instance of format class " + type.getClass() + ": " + e.getMessage(), e);
                 }
-                if (dataType instanceof ClassAware) {
-                    ((ClassAware) dataType).setClass(f.getType());
-                }
-                if (dataType instanceof ParamsAware && annotation.args().length != 0) {
-                    ((ParamsAware) dataType).setParams(annotation.args());
-                }
-                if (res.put(name, new FieldInfo(name, dataType, newChain)) != null) {
+                configureType(dataType, f.getType(), annotation.args());
+                if (res.put(name, new FieldInfo(name, dataType, newChain, f.getAnnotation(KeyField.class) != null)) != null) {
                     throw new IllegalStateException("Can't register field with name '" + name + "'. Field with same name was already registered");
                 }
             }
@@ -105,9 +111,44 @@ public class BeanSerializer<T> implements DataType<T>, ClassAware<T>, ParamsAwar
         return res;
     }
 
+    /**
+     * Chooses data type for field which has no type specified
+     * @param fieldClass class of field
+     * @return data type class
+     */
+    static Class<? extends DataType> guessType(Class fieldClass) {
+        if (Date.class.isAssignableFrom(fieldClass)) {
+            return DateTimeType.class;
+        } else if (Enum.class.isAssignableFrom(fieldClass)) {
+            return EnumType.class;
+        } else {
+            return ScalarType.class;
+        }
+    }
+
+    /**
+     * Passes field class and annotation args to data type
+     * @param dataType data type
+     * @param fieldClass class of field
+     * @param args annotation args
+     */
+    static void configureType(DataType dataType, Class fieldClass, String[] args) {
+        if (dataType instanceof ClassAware) {
+            ((ClassAware) dataType).setClass(fieldClass);
+        }
+        if (dataType instanceof ParamsAware && args.length != 0) {
+            ((ParamsAware) dataType).setParams(args);
+        }
+    }
+
     private void buildFieldDictionary() {
-        fieldsDictionary = listFields(cls, "", new ArrayList<java.lang.reflect.Field>());
-        fieldList = new ArrayList<FieldInfo>(fieldsDictionary.values());
+        schema = GeneratedSchema.find(cls);
+        if (schema != null) {
+            fieldsDictionary = schema.getFields();
+        } else {
+            fieldsDictionary = listFields(cls, "", new ArrayList<java.lang.reflect.Field>());
+        }
+        setFieldList(new ArrayList<FieldInfo>(fieldsDictionary.values()));
     }
 
     public String[] getHeader() {
@@ -119,18 +160,151 @@ public class BeanSerializer<T> implements DataType<T>, ClassAware<T>, ParamsAwar
         return header;
     }
 
-    private class FieldInfo {
+    /**
+     * Returns column of field in current header
+     * @param name field name
+     * @return column index or -1 if there's no such field in header
+     */
+    public int getColumn(String name) {
+        Integer column = columnIndex.get(name);
+        return column == null ? -1 : column;
+    }
+
+    /**
+     * @return column indexes of current header. Map is replaced, never modified, when header changes
+     */
+    Map<String, Integer> getColumnIndex() {
+        return columnIndex;
+    }
+
+    FieldInfo getField(String name) {
+        FieldInfo field = fieldsDictionary.get(name);
+        if (field == null) {
+            throw new IllegalArgumentException("There's no field '" + name + "' in " + cls.getName());
+        }
+        return field;
+    }
+
+    /**
+     * @return fields marked with {@link KeyField}
+     */
+    List<FieldInfo> getKeyFields() {
+        List<FieldInfo> keys = new ArrayList<FieldInfo>();
+        for (FieldInfo f : fieldsDictionary.values()) {
+            if (f.isKey()) {
+                keys.add(f);
+            }
+        }
+        return keys;
+    }
+
+    List<FieldInfo> getFieldList() {
+        return fieldList;
+    }
+
+    String getSeparator() {
+        return separator;
+    }
+
+    T newInstance() {
+        if (schema != null) {
+            return schema.newInstance();
+        }
+        try {
+            return newInstance(cls);
+        } catch (Exception e) {
+            throw new IllegalStateException("Class cls: " + cls.getName(), e);
+        }
+    }
+
+    /**
+     * Sets values to bean. Reflected fields are set by {@link TraversalPlan}, so every embedded bean is
+     * fetched or created once
+     * @param fields fields in order of columns
+     * @param instance bean
+     * @param values values in order of columns
+     */
+    void setValues(List<FieldInfo> fields, T instance, Object[] values) {
+        if (generatedHeader && fields == fieldList) {
+            schema.setValues(instance, values);
+            return;
+        }
+        TraversalPlan p = plan;
+        if (p != null && p.getFields() == fields) {
+            p.set(instance, values);
+        } else {
+            for (int j = 0; j < values.length; j++) {
+                fields.get(j).set(instance, values[j]);
+            }
+        }
+    }
+
+    /**
+     * Reads values of bean, see {@link #setValues(List, Object, Object[])}
+     * @param fields fields in order of columns
+     * @param object bean
+     * @return values in order of columns
+     */
+    Object[] getValues(List<FieldInfo> fields, T object) {
+        if (generatedHeader && fields == fieldList) {
+            return schema.getValues(object);
+        }
+        TraversalPlan p = plan;
+        if (p != null && p.getFields() == fields) {
+            return p.get(object);
+        }
+        Object[] values = new Object[fields.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = fields.get(i).get(object);
+        }
+        return values;
+    }
+
+    static class FieldInfo {
         private List<java.lang.reflect.Field> fieldChain;
+        private FieldAccessor accessor;
         private String name;
         private DataType type;
+        private ByteDataType byteType;
+        private boolean key;
+
+        FieldInfo(String name, DataType type, List<java.lang.reflect.Field> fieldChain, boolean key) {
+            this(name, type, key);
+            this.fieldChain = fieldChain;
+        }
 
-        private FieldInfo(String name, DataType type, List<java.lang.reflect.Field> fieldChain) {
+        FieldInfo(String name, DataType type, FieldAccessor accessor, boolean key) {
+            this(name, type, key);
+            this.accessor = accessor;
+        }
+
+        private FieldInfo(String name, DataType type, boolean key) {
             this.name = name;
             this.type = type;
-            this.fieldChain = fieldChain;
+            this.byteType = type instanceof ByteDataType ? (ByteDataType) type : null;
+            this.key = key;
+        }
+
+        /**
+         * Parses value from UTF-8 bytes, decoding them for types which don't implement {@link ByteDataType}
+         */
+        Object parse(byte[] bytes, int start, int end) {
+            return byteType != null ? byteType.parse(bytes, start, end) : type.parse(Utf8.decode(bytes, start, end));
+        }
+
+        void write(Object value, ByteBuilder out) {
+            if (byteType != null) {
+                byteType.write(value, out);
+            } else {
+                out.append(type.toString(value));
+            }
         }
 
         public void set(Object instance, Object value) {
+            if (accessor != null) {
+                accessor.set(instance, value);
+                return;
+            }
             for (Iterator<java.lang.reflect.Field> iterator = fieldChain.iterator(); iterator.hasNext();) {
                 java.lang.reflect.Field f = iterator.next();
                 try {
@@ -151,6 +325,9 @@ public class BeanSerializer<T> implements DataType<T>, ClassAware<T>, ParamsAwar
         }
 
         public Object get(Object instance) {
+            if (accessor != null) {
+                return accessor.get(instance);
+            }
             for (Iterator<java.lang.reflect.Field> iterator = fieldChain.iterator(); iterator.hasNext();) {
                 java.lang.reflect.Field f = iterator.next();
                 try {
@@ -170,6 +347,25 @@ public class BeanSerializer<T> implements DataType<T>, ClassAware<T>, ParamsAwar
             throw new Error();
         }
 
+        String getName() {
+            return name;
+        }
+
+        /**
+         * @return chain of reflected fields from bean to the field or null if field is accessed by generated code
+         */
+        List<java.lang.reflect.Field> getFieldChain() {
+            return fieldChain;
+        }
+
+        DataType getType() {
+            return type;
+        }
+
+        boolean isKey() {
+            return key;
+        }
+
         public String toString() {
             return name;
         }
@@ -178,31 +374,67 @@ public class BeanSerializer<T> implements DataType<T>, ClassAware<T>, ParamsAwar
 
 
     public T parse(String str) {
-        T instance;
-        try {
-            instance = newInstance(cls);
-        } catch (Exception e) {
-            throw new IllegalStateException("Class cls: " + cls.getName(), e);
+        return parse(str, null);
+    }
+
+    /**
+     * Parses line checking conditions of the filter as soon as corresponding column is tokenized.
+     * Once a condition fails the rest of the line is neither tokenized nor parsed and bean is not created
+     * @param str line
+     * @param filter filter, may be null
+     * @return bean or null if line was rejected by filter
+     */
+    public T parse(String str, RowFilter<T> filter) {
+        if (filter == null && generatedHeader) {
+            return schema.parse(str, separator);
         }
+        List<FieldInfo> fields = fieldList;
+        RowFilter.Condition[] conditions = filter == null ? null : filter.getConditions(fields);
+        Object[] values = new Object[fields.size()];
         int i = 0;
-        for (String field : Splitter.on(separator).split(str)) {
-            FieldInfo fieldInfo;
-            try {
-                fieldInfo = fieldList.get(i++);
-            } catch (IndexOutOfBoundsException e) {
-                throw new IllegalStateException("Number of fields in line exceeded number of fields in object (" + fieldList.size() + "). Line: '" + str + "'");
+        int start = 0;
+        int length = str.length();
+        while (true) {
+            int end = str.indexOf(separator, start);
+            if (end < 0) {
+                end = length;
+            }
+            if (i == fields.size()) {
+                throw new IllegalStateException("Number of fields in line exceeded number of fields in object (" + fields.size() + "). Line: '" + str + "'");
+            }
+            RowFilter.Condition condition = conditions == null ? null : conditions[i];
+            if (condition != null && !condition.acceptsRaw(str, start, end)) {
+                return null;
+            }
+            Object val = fields.get(i).type.parse(str.substring(start, end));
+            if (condition != null && !condition.accepts(val)) {
+                return null;
+            }
+            values[i++] = val;
+            if (end == length) {
+                break;
             }
-            Object val = fieldInfo.type.parse(field);
-            fieldInfo.set(instance, val);
+            start = end + separator.length();
         }
-        if (i != fieldList.size()) {
-            throw new IllegalStateException("Too few fields in line (" + i + "). It should be equal to fields in object (" + fieldList.size() + "). Line: '" + str + "'");
+        if (i != fields.size()) {
+            throw new IllegalStateException("Too few fields in line (" + i + "). It should be equal to fields in object (" + fields.size() + "). Line: '" + str + "'");
         }
-
+        T instance = newInstance();
+        setValues(fields, instance, values);
         return instance;
     }
 
-    private static <T> T newInstance(Class<T> cls) {
+    /**
+     * Returns lazy view of the line. Line is not tokenized nor parsed until fields are requested,
+     * see {@link RowView}
+     * @param str line
+     * @return view of the line
+     */
+    public RowView<T> parseLazy(String str) {
+        return new RowView<T>(this, str);
+    }
+
+    static <T> T newInstance(Class<T> cls) {
         try {
             return cls.newInstance();
         } catch (Exception e) {
@@ -212,14 +444,109 @@ public class BeanSerializer<T> implements DataType<T>, ClassAware<T>, ParamsAwar
 
     @Override
     public String toString(T object) {
-        String[] fields = new String[fieldList.size()];
-        for (int i = 0, allFieldsSize = fieldList.size(); i < allFieldsSize; i++) {
-            FieldInfo f = fieldList.get(i);
-            fields[i] = f.type.toString(f.get(object));
+        if (generatedHeader) {
+            return schema.toString(object, separator);
+        }
+        List<FieldInfo> list = fieldList;
+        Object[] values = getValues(list, object);
+        String[] fields = new String[list.size()];
+        for (int i = 0, allFieldsSize = list.size(); i < allFieldsSize; i++) {
+            fields[i] = list.get(i).type.toString(values[i]);
         }
         return Joiner.on(separator).join(fields);
     }
 
+    /**
+     * Parses line from UTF-8 bytes. Fields of types implementing {@link ByteDataType} are parsed without
+     * decoding the line to string
+     * @param bytes bytes
+     * @param start start of line, inclusive
+     * @param end end of line (without line separator), exclusive
+     * @return bean
+     */
+    @Override
+    public T parse(byte[] bytes, int start, int end) {
+        if (generatedHeader) {
+            return schema.parse(bytes, start, end, separatorBytes);
+        }
+        List<FieldInfo> fields = fieldList;
+        Object[] values = parseValues(fields, bytes, start, end);
+        T instance = newInstance();
+        setValues(fields, instance, values);
+        return instance;
+    }
+
+    /**
+     * Parses values of line from UTF-8 bytes without creating bean
+     * @param fields fields in order of columns
+     * @return values in order of columns
+     */
+    Object[] parseValues(List<FieldInfo> fields, byte[] bytes, int start, int end) {
+        byte[] sep = separatorBytes;
+        Object[] values = new Object[fields.size()];
+        int i = 0;
+        int from = start;
+        while (true) {
+            int to = indexOf(bytes, sep, from, end);
+            if (i == fields.size()) {
+                throw new IllegalStateException("Number of fields in line exceeded number of fields in object (" + fields.size() + "). Line: '" + Utf8.decode(bytes, start, end) + "'");
+            }
+            values[i] = fields.get(i).parse(bytes, from, to);
+            i++;
+            if (to == end) {
+                break;
+            }
+            from = to + sep.length;
+        }
+        if (i != fields.size()) {
+            throw new IllegalStateException("Too few fields in line (" + i + "). It should be equal to fields in object (" + fields.size() + "). Line: '" + Utf8.decode(bytes, start, end) + "'");
+        }
+        return values;
+    }
+
+    /**
+     * @return position of separator or end if there's no separator
+     */
+    static int indexOf(byte[] bytes, byte[] sep, int from, int end) {
+        byte first = sep[0];
+        for (int i = from; i <= end - sep.length; i++) {
+            if (bytes[i] == first && Utf8.equals(bytes, i, i + sep.length, sep)) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Formats bean as UTF-8 line (without line separator)
+     * @param object bean
+     * @param out builder the line is appended to
+     */
+    @Override
+    public void write(T object, ByteBuilder out) {
+        if (generatedHeader) {
+            schema.write(object, out, separatorBytes);
+            return;
+        }
+        List<FieldInfo> fields = fieldList;
+        writeValues(fields, getValues(fields, object), out);
+    }
+
+    /**
+     * Formats values as UTF-8 line (without line separator) without bean
+     * @param fields fields in order of columns
+     * @param values values in order of columns
+     * @param out builder the line is appended to
+     */
+    void writeValues(List<FieldInfo> fields, Object[] values, ByteBuilder out) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (i != 0) {
+                out.append(separatorBytes);
+            }
+            fields.get(i).write(values[i], out);
+        }
+    }
+
     @Override
     public String describe() {
         return cls.getSimpleName() + "Serializer";
@@ -249,5 +576,6 @@ public class BeanSerializer<T> implements DataType<T>, ClassAware<T>, ParamsAwar
     @Override
     public void setParams(String[] args) {
         this.separator = args[0];
+        this.separatorBytes = Utf8.encode(args[0]);
     }
 }
@@ -186,4 +186,56 @@ public class BinaryHelper {
     public static void toBytes(long value, byte[] bb) {
         toBytes(value, bb, 0);
     }
+
+    /**
+     * Calculates 32-bit MurmurHash3 of byte array range
+     * @param data byte array
+     * @param offset offset in array
+     * @param length number of bytes
+     * @return hash
+     */
+    public static int murmurHash(byte[] data, int offset, int length) {
+        int h = 0x9747b28c;
+        int end = offset + (length & ~3);
+        for (int i = offset; i < end; i += 4) {
+            int k = (data[i] & 0xff) | ((data[i + 1] & 0xff) << 8) | ((data[i + 2] & 0xff) << 16) | (data[i + 3] << 24);
+            k *= 0xcc9e2d51;
+            k = Integer.rotateLeft(k, 15);
+            k *= 0x1b873593;
+            h ^= k;
+            h = Integer.rotateLeft(h, 13);
+            h = h * 5 + 0xe6546b64;
+        }
+        int tail = length & 3;
+        if (tail > 0) {
+            int k = 0;
+            if (tail == 3) {
+                k = (data[end + 2] & 0xff) << 16;
+            }
+            if (tail >= 2) {
+                k |= (data[end + 1] & 0xff) << 8;
+            }
+            k |= data[end] & 0xff;
+            k *= 0xcc9e2d51;
+            k = Integer.rotateLeft(k, 15);
+            k *= 0x1b873593;
+            h ^= k;
+        }
+        h ^= length;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Calculates 32-bit MurmurHash3 of byte array
+     * @param data byte array
+     * @return hash
+     */
+    public static int murmurHash(byte[] data) {
+        return murmurHash(data, 0, data.length);
+    }
 }
@@ -0,0 +1,77 @@
+package com.scalemotion.tsvbean;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Binary encoding of field values shared by {@link Transcoder} and {@link BeanCache}. Every value is written
+ * as null marker byte (0 - null, 1 - value follows) and value written by its {@link BinaryType}; strings and
+ * values of other types are written as int length followed by UTF-8 bytes of their text. Unlike
+ * <code>writeUTF</code> it isn't limited to 64K
+ */
+final class BinaryRecords {
+    private static final byte NULL = 0;
+    private static final byte VALUE = 1;
+    /**
+     * Maximum length of record, column or text value. Bigger length read from input means it's corrupt
+     */
+    static final int MAX_LENGTH = 1 << 30;
+
+    private BinaryRecords() {
+    }
+
+    static Object readValue(BeanSerializer.FieldInfo field, DataInput in) throws IOException {
+        if (in.readByte() == NULL) {
+            return null;
+        }
+        DataType type = field.getType();
+        if (isBinary(type)) {
+            return ((BinaryType) type).read(in);
+        }
+        int length = in.readInt();
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new IOException("Corrupt value of " + field.getName() + ": length " + length);
+        }
+        byte[] text = new byte[length];
+        in.readFully(text);
+        return type.parse(Utf8.decode(text, 0, length));
+    }
+
+    @SuppressWarnings("unchecked")
+    static void writeValue(BeanSerializer.FieldInfo field, Object value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        out.writeByte(VALUE);
+        DataType type = field.getType();
+        if (isBinary(type)) {
+            ((BinaryType) type).write(value, out);
+        } else {
+            byte[] text = Utf8.encode(type.toString(value));
+            out.writeInt(text.length);
+            out.write(text);
+        }
+    }
+
+    //binary form of String scalar is writeUTF, which can't hold long strings
+    private static boolean isBinary(DataType type) {
+        return type instanceof BinaryType && !(type instanceof ScalarType && ((ScalarType) type).getScalarClass() == String.class);
+    }
+
+    static Object[] readRecord(List<BeanSerializer.FieldInfo> fields, DataInput in) throws IOException {
+        Object[] values = new Object[fields.size()];
+        for (int c = 0; c < values.length; c++) {
+            values[c] = readValue(fields.get(c), in);
+        }
+        return values;
+    }
+
+    static void writeRecord(List<BeanSerializer.FieldInfo> fields, Object[] values, DataOutput out) throws IOException {
+        for (int c = 0; c < values.length; c++) {
+            writeValue(fields.get(c), values[c], out);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.scalemotion.tsvbean;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Growable byte array used to format values with {@link ByteDataType}. May be reused with {@link #reset()}.
+ * Not thread safe
+ */
+public final class ByteBuilder {
+    private static final byte[] MIN_LONG = "-9223372036854775808".getBytes(Utf8.UTF8);
+    private byte[] bytes;
+    private int length = 0;
+
+    public ByteBuilder() {
+        this(256);
+    }
+
+    public ByteBuilder(int capacity) {
+        bytes = new byte[Math.max(capacity, 16)];
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+
+    public ByteBuilder append(byte b) {
+        ensure(1);
+        bytes[length++] = b;
+        return this;
+    }
+
+    public ByteBuilder append(byte[] b) {
+        return append(b, 0, b.length);
+    }
+
+    public ByteBuilder append(byte[] b, int offset, int len) {
+        ensure(len);
+        System.arraycopy(b, offset, bytes, length, len);
+        length += len;
+        return this;
+    }
+
+    /**
+     * Increases length by count bytes which are to be filled through {@link #getBytes()}
+     * @param count number of bytes
+     */
+    void extend(int count) {
+        ensure(count);
+        length += count;
+    }
+
+    /**
+     * Appends decimal representation of number
+     * @param value number
+     * @return this builder
+     */
+    public ByteBuilder append(long value) {
+        if (value == Long.MIN_VALUE) {
+            return append(MIN_LONG);
+        }
+        ensure(20);
+        if (value < 0) {
+            bytes[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+        return this;
+    }
+
+    /**
+     * Appends number padded with leading zeros
+     * @param value non negative number
+     * @param digits minimal number of digits
+     * @return this builder
+     */
+    ByteBuilder appendPadded(int value, int digits) {
+        for (int v = value; v >= 10 && digits > 0; v /= 10) {
+            digits--;
+        }
+        ensure(digits);
+        for (int i = 1; i < digits; i++) {
+            bytes[length++] = '0';
+        }
+        return append(value);
+    }
+
+    /**
+     * Appends UTF-8 encoded text. ASCII characters are copied as is, unpaired surrogates are replaced with '?'
+     * the same way {@link String#getBytes(java.nio.charset.Charset)} does
+     * @param s text
+     * @return this builder
+     */
+    public ByteBuilder append(CharSequence s) {
+        int n = s.length();
+        ensure(n);
+        int i = 0;
+        //ASCII fast path
+        for (; i < n; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            bytes[length++] = (byte) c;
+        }
+        for (; i < n; i++) {
+            char c = s.charAt(i);
+            ensure(4);
+            if (c < 0x80) {
+                bytes[length++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[length++] = (byte) (0xc0 | c >> 6);
+                bytes[length++] = (byte) (0x80 | c & 0x3f);
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    bytes[length++] = (byte) (0xf0 | cp >> 18);
+                    bytes[length++] = (byte) (0x80 | cp >> 12 & 0x3f);
+                    bytes[length++] = (byte) (0x80 | cp >> 6 & 0x3f);
+                    bytes[length++] = (byte) (0x80 | cp & 0x3f);
+                } else {
+                    bytes[length++] = '?';
+                }
+            } else {
+                bytes[length++] = (byte) (0xe0 | c >> 12);
+                bytes[length++] = (byte) (0x80 | c >> 6 & 0x3f);
+                bytes[length++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return number of bytes
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @param length new length, should not exceed current one
+     */
+    public void setLength(int length) {
+        if (length < 0 || length > this.length) {
+            throw new IllegalArgumentException("Can't set length " + length + " of " + this.length + " bytes");
+        }
+        this.length = length;
+    }
+
+    public void reset() {
+        length = 0;
+    }
+
+    /**
+     * @return internal buffer, valid bytes are [0, length())
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, length);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, 0, length, Utf8.UTF8);
+    }
+}
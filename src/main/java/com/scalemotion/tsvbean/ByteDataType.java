@@ -0,0 +1,26 @@
+package com.scalemotion.tsvbean;
+
+/**
+ * Byte level companion of {@link DataType}: parses values straight from UTF-8 encoded bytes and formats them into
+ * {@link ByteBuilder}, so TSV may be transformed without decoding to and encoding from UTF-16 strings.
+ * Results are the same as of <code>parse(new String(bytes, start, end - start, UTF8))</code> and
+ * <code>toString(object).getBytes(UTF8)</code> for valid UTF-8. Decoding is strict though: malformed input fails
+ * with <code>IllegalStateException</code> instead of being replaced with U+FFFD as <code>new String(...)</code> does
+ *
+ * @param <T> type of value
+ */
+public interface ByteDataType<T> {
+    /**
+     * @param bytes UTF-8 encoded text
+     * @param start start of value, inclusive
+     * @param end end of value, exclusive
+     * @return value
+     */
+    public T parse(byte[] bytes, int start, int end);
+
+    /**
+     * @param object value
+     * @param out UTF-8 encoded text of value is appended to it
+     */
+    public void write(T object, ByteBuilder out);
+}
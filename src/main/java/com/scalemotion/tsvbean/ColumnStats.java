@@ -0,0 +1,139 @@
+package com.scalemotion.tsvbean;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Approximate statistics of a column collected by {@link StatsScanner}: null rate, number of distinct values
+ * (HyperLogLog), min/max and histogram of numeric and date values (built from a random sample of values).
+ */
+public class ColumnStats {
+    private final String name;
+    private final HyperLogLog distinct;
+    private final Reservoir<Double> values;
+    private long count = 0;
+    private long nulls = 0;
+    private Comparable min;
+    private Comparable max;
+
+    ColumnStats(String name, int precision, int valuesSampleSize, Random random) {
+        this.name = name;
+        this.distinct = new HyperLogLog(precision);
+        this.values = new Reservoir<Double>(valuesSampleSize, random);
+    }
+
+    /**
+     * Accumulates value
+     * @param line line
+     * @param start start of raw value in line
+     * @param end end of raw value in line
+     * @param value parsed value
+     */
+    void add(String line, int start, int end, Object value) {
+        count++;
+        if (value == null || (end - start == 4 && line.startsWith("null", start))) {
+            nulls++;
+            return;
+        }
+        distinct.add(line, start, end);
+        if (value instanceof Comparable) {
+            Comparable c = (Comparable) value;
+            if (min == null || c.compareTo(min) < 0) {
+                min = c;
+            }
+            if (max == null || c.compareTo(max) > 0) {
+                max = c;
+            }
+        }
+        if (value instanceof Number) {
+            values.add(((Number) value).doubleValue());
+        } else if (value instanceof Date) {
+            values.add((double) ((Date) value).getTime());
+        }
+    }
+
+    void merge(ColumnStats other) {
+        count += other.count;
+        nulls += other.nulls;
+        distinct.merge(other.distinct);
+        if (other.min != null && (min == null || other.min.compareTo(min) < 0)) {
+            min = other.min;
+        }
+        if (other.max != null && (max == null || other.max.compareTo(max) > 0)) {
+            max = other.max;
+        }
+        values.merge(other.values);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of scanned values, including nulls
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public long getNullCount() {
+        return nulls;
+    }
+
+    public double getNullRate() {
+        return count == 0 ? 0 : (double) nulls / count;
+    }
+
+    /**
+     * @return estimated number of distinct non null values
+     */
+    public long getDistinct() {
+        return distinct.cardinality();
+    }
+
+    public Object getMin() {
+        return min;
+    }
+
+    public Object getMax() {
+        return max;
+    }
+
+    /**
+     * Builds equi-width histogram of numeric or date values (dates as millis) between exact {@link #getMin()} and
+     * {@link #getMax()}. Histogram is built from the sample of values and is scaled to the number of non null values
+     * @param buckets number of buckets
+     * @return estimated number of values in each bucket or null if column is not numeric
+     */
+    public long[] getHistogram(int buckets) {
+        List<Double> sample = values.getItems();
+        if (sample.isEmpty()) {
+            return null;
+        }
+        //sample contains only numbers and dates, so min and max are of the same type
+        double lo = toDouble(min);
+        double hi = toDouble(max);
+        long[] histogram = new long[buckets];
+        double width = (hi - lo) / buckets;
+        double scale = (double) (count - nulls) / sample.size();
+        double[] counts = new double[buckets];
+        for (double v : sample) {
+            int b = width == 0 ? 0 : (int) ((v - lo) / width);
+            counts[Math.min(b, buckets - 1)] += scale;
+        }
+        for (int i = 0; i < buckets; i++) {
+            histogram[i] = Math.round(counts[i]);
+        }
+        return histogram;
+    }
+
+    private static double toDouble(Object value) {
+        return value instanceof Date ? (double) ((Date) value).getTime() : ((Number) value).doubleValue();
+    }
+
+    @Override
+    public String toString() {
+        return name + "[count=" + count + ", nulls=" + nulls + ", distinct=" + getDistinct() + ", min=" + min + ", max=" + max + "]";
+    }
+}
@@ -9,9 +9,10 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.util.Date;
 
-public class DateTimeType implements DataType<Date>, ParamsAware, BinaryType<Date> {
-    private DateTimeFormatter dateFormat;
-    private String pattern = "yyyy-MM-dd HH:mm:ss";
+public class DateTimeType implements DataType<Date>, ParamsAware, BinaryType<Date>, ByteDataType<Date> {
+    private static final String DEFAULT_PATTERN = "yyyy-MM-dd HH:mm:ss";
+    private DateTimeFormatter dateFormat = DateTimeFormat.forPattern(DEFAULT_PATTERN);
+    private String pattern = DEFAULT_PATTERN;
 
     @Override
     public Date parse(String str) {
@@ -34,6 +35,69 @@ public class DateTimeType implements DataType<Date>, ParamsAware, BinaryType<Dat
         }
     }
 
+    /**
+     * Parses bytes. Dates of default pattern are parsed straight from ASCII digits, other patterns fall back
+     * to {@link #parse(String)}
+     */
+    @Override
+    public Date parse(byte[] bytes, int start, int end) {
+        if (Utf8.isNull(bytes, start, end)) {
+            return null;
+        }
+        if (pattern.equals(DEFAULT_PATTERN) && end - start == 19
+                && bytes[start + 4] == '-' && bytes[start + 7] == '-' && bytes[start + 10] == ' '
+                && bytes[start + 13] == ':' && bytes[start + 16] == ':') {
+            int year = digits(bytes, start, 4);
+            int month = digits(bytes, start + 5, 2);
+            int day = digits(bytes, start + 8, 2);
+            int hour = digits(bytes, start + 11, 2);
+            int minute = digits(bytes, start + 14, 2);
+            int second = digits(bytes, start + 17, 2);
+            if ((year | month | day | hour | minute | second) >= 0) {
+                try {
+                    return new DateTime(year, month, day, hour, minute, second, 0).toDate();
+                } catch (IllegalArgumentException e) {
+                    //invalid fields or local time in DST gap, formatter decides what to do
+                }
+            }
+        }
+        return parse(Utf8.decode(bytes, start, end));
+    }
+
+    /**
+     * @return number or -1 if there are non digits
+     */
+    private static int digits(byte[] bytes, int start, int count) {
+        int res = 0;
+        for (int i = start; i < start + count; i++) {
+            int d = bytes[i] - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            res = res * 10 + d;
+        }
+        return res;
+    }
+
+    @Override
+    public void write(Date object, ByteBuilder out) {
+        if (object == null) {
+            out.append(Utf8.NULL);
+            return;
+        }
+        if (pattern.equals(DEFAULT_PATTERN)) {
+            DateTime dt = new DateTime(object);
+            int year = dt.getYear();
+            if (year >= 1000 && year <= 9999) {
+                out.append(year).append((byte) '-').appendPadded(dt.getMonthOfYear(), 2).append((byte) '-').appendPadded(dt.getDayOfMonth(), 2)
+                        .append((byte) ' ').appendPadded(dt.getHourOfDay(), 2).append((byte) ':').appendPadded(dt.getMinuteOfHour(), 2)
+                        .append((byte) ':').appendPadded(dt.getSecondOfMinute(), 2);
+                return;
+            }
+        }
+        out.append(toString(object));
+    }
+
     @Override
     public String describe() {
         return "Date[" + pattern + "]";
@@ -0,0 +1,66 @@
+package com.scalemotion.tsvbean;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Bitmap index of beans by enum field: one bitmap of bean positions per enum constant (1 bit per bean per
+ * constant). Bitmaps of different fields may be combined with {@link BitSet#and(BitSet)} and friends.
+ * Beans with null value are not indexed. Immutable, built by {@link BeanIndexBuilder}.
+ *
+ * @param <T> type of bean
+ */
+public class EnumIndex<T> {
+    private final List<T> beans;
+    private final BitSet[] bitmaps;
+
+    EnumIndex(List<T> beans, int constants, long[] ordinals, boolean[] nulls) {
+        this.beans = beans;
+        this.bitmaps = new BitSet[constants];
+        for (int i = 0; i < constants; i++) {
+            bitmaps[i] = new BitSet(beans.size());
+        }
+        for (int pos = 0; pos < beans.size(); pos++) {
+            if (!nulls[pos]) {
+                bitmaps[(int) ordinals[pos]].set(pos);
+            }
+        }
+    }
+
+    /**
+     * @param value enum constant
+     * @return copy of bitmap of positions of beans with given value
+     */
+    public BitSet bitmap(Enum value) {
+        return (BitSet) bitmaps[value.ordinal()].clone();
+    }
+
+    /**
+     * @param value enum constant
+     * @return number of beans with given value
+     */
+    public int count(Enum value) {
+        return bitmaps[value.ordinal()].cardinality();
+    }
+
+    /**
+     * @param value enum constant
+     * @return beans with given value in order of their positions
+     */
+    public List<T> get(Enum value) {
+        return get(bitmaps[value.ordinal()]);
+    }
+
+    /**
+     * @param bitmap bitmap of positions
+     * @return beans at positions set in bitmap
+     */
+    public List<T> get(BitSet bitmap) {
+        List<T> res = new ArrayList<T>(bitmap.cardinality());
+        for (int pos = bitmap.nextSetBit(0); pos >= 0; pos = bitmap.nextSetBit(pos + 1)) {
+            res.add(beans.get(pos));
+        }
+        return res;
+    }
+}
@@ -4,11 +4,18 @@ import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.Map;
 
-public class EnumType<T extends Enum<T>> implements DataType<T>, ParamsAware, ClassAware{
+public class EnumType<T extends Enum<T>> implements DataType<T>, ParamsAware, ClassAware, ByteDataType<T> {
+    /**
+     * Byte keys of enums with more constants are looked up through decoded string
+     */
+    private static final int MAX_SCANNED = 16;
     private Class cls;
     private Map<String, T> stringIndex;
     private Map<T, String> enumIndex;
     private String keyField;
+    //UTF-8 keys indexed by ordinal
+    private byte[][] byteKeys = new byte[0][];
+    private Object[] constants = new Object[0];
 
     @Override
     public void setClass(Class cls) {
@@ -20,7 +27,8 @@ public class EnumType<T extends Enum<T>> implements DataType<T>, ParamsAware, Cl
         stringIndex = new HashMap<String, T>();
         enumIndex = new HashMap<T, String>();
         if (cls != null) {
-            Object[] constants = cls.getEnumConstants();
+            constants = cls.getEnumConstants();
+            byteKeys = new byte[constants.length][];
             for (Object o : constants) {
                 String key;
                 if (keyField != null) {
@@ -41,10 +49,15 @@ public class EnumType<T extends Enum<T>> implements DataType<T>, ParamsAware, Cl
                 }
                 stringIndex.put(key, (T) o);
                 enumIndex.put((T) o, key);
+                byteKeys[((Enum) o).ordinal()] = Utf8.encode(key);
             }
         }
     }
 
+    Class getEnumClass() {
+        return cls;
+    }
+
     @Override
     public T parse(String str) {
         if (str == null || "null".equals(str)) {
@@ -65,6 +78,30 @@ public class EnumType<T extends Enum<T>> implements DataType<T>, ParamsAware, Cl
         return enumIndex.get(object);
     }
 
+    @Override
+    public T parse(byte[] bytes, int start, int end) {
+        if (Utf8.isNull(bytes, start, end)) {
+            return null;
+        }
+        if (byteKeys.length <= MAX_SCANNED) {
+            for (int i = 0; i < byteKeys.length; i++) {
+                if (Utf8.equals(bytes, start, end, byteKeys[i])) {
+                    return (T) constants[i];
+                }
+            }
+        }
+        return parse(Utf8.decode(bytes, start, end));
+    }
+
+    @Override
+    public void write(T object, ByteBuilder out) {
+        if (object == null) {
+            out.append(Utf8.NULL);
+        } else {
+            out.append(byteKeys[object.ordinal()]);
+        }
+    }
+
     @Override
     public String describe() {
         return cls.getSimpleName();
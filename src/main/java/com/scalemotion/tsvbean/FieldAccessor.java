@@ -0,0 +1,20 @@
+package com.scalemotion.tsvbean;
+
+/**
+ * Reads and writes value of (possibly embedded) bean field without reflection. Implementations are generated by
+ * {@link SchemaProcessor}
+ */
+public interface FieldAccessor {
+    /**
+     * @param bean bean
+     * @return field value or null if some of embedded beans on the way is null
+     */
+    Object get(Object bean);
+
+    /**
+     * Sets field value, creating missing embedded beans on the way
+     * @param bean bean
+     * @param value value
+     */
+    void set(Object bean, Object value);
+}
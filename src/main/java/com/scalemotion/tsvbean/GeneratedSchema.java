@@ -0,0 +1,211 @@
+package com.scalemotion.tsvbean;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Base class of schemas generated by {@link SchemaProcessor}. Generated schema of bean class
+ * <code>a.b.C</code> is named <code>a.b.C$$TsvSchema</code> and is picked up by {@link BeanSerializer}
+ * automatically: fields are then accessed and beans are created by generated code instead of reflection.
+ * <p/>
+ * Generated schema also parses and formats whole lines with straight-line code, field by field without loops over
+ * field list. These paths are used while serializer header is the default one (all fields in order of declaration);
+ * serializer with other header, filtered parsing and lazy views go through generated accessors.
+ *
+ * @param <T> type of bean
+ */
+public abstract class GeneratedSchema<T> {
+    public static final String SUFFIX = "$$TsvSchema";
+    //bean class -> schema class; references are weak so classes can be unloaded. Referent is null if there's no schema
+    private static final Map<Class<?>, WeakReference<Class<?>>> SCHEMAS = Collections.synchronizedMap(new WeakHashMap<Class<?>, WeakReference<Class<?>>>());
+    private final LinkedHashMap<String, BeanSerializer.FieldInfo> fields = new LinkedHashMap<String, BeanSerializer.FieldInfo>();
+    //fields by column in default header
+    private final List<BeanSerializer.FieldInfo> columns = new ArrayList<BeanSerializer.FieldInfo>();
+
+    /**
+     * Registers field. Called by generated constructor in order of columns
+     * @param name column name
+     * @param type configured data type
+     * @param key whether field is marked with {@link KeyField}
+     * @param accessor field accessor
+     */
+    protected final void add(String name, DataType type, boolean key, FieldAccessor accessor) {
+        BeanSerializer.FieldInfo field = new BeanSerializer.FieldInfo(name, type, accessor, key);
+        if (fields.put(name, field) != null) {
+            throw new IllegalStateException("Can't register field with name '" + name + "'. Field with same name was already registered");
+        }
+        columns.add(field);
+    }
+
+    /**
+     * Configures data type the same way as {@link BeanSerializer} does for reflected fields
+     * @param type data type
+     * @param fieldClass class of field
+     * @param args annotation args
+     * @return type
+     */
+    protected static DataType configure(DataType type, Class fieldClass, String... args) {
+        BeanSerializer.configureType(type, fieldClass, args);
+        return type;
+    }
+
+    /**
+     * @return new bean
+     */
+    public abstract T newInstance();
+
+    /**
+     * Parses line in default header, see {@link BeanSerializer#parse(String)}
+     * @param line line
+     * @param separator separator of fields
+     * @return bean
+     */
+    protected abstract T parse(String line, String separator);
+
+    /**
+     * Parses UTF-8 line in default header, see {@link BeanSerializer#parse(byte[], int, int)}
+     * @param bytes bytes
+     * @param start start of line, inclusive
+     * @param end end of line, exclusive
+     * @param separator UTF-8 bytes of separator
+     * @return bean
+     */
+    protected abstract T parse(byte[] bytes, int start, int end, byte[] separator);
+
+    /**
+     * Formats bean in default header, see {@link BeanSerializer#toString(Object)}
+     * @param bean bean
+     * @param separator separator of fields
+     * @return line
+     */
+    protected abstract String toString(T bean, String separator);
+
+    /**
+     * Formats bean as UTF-8 line in default header, see {@link BeanSerializer#write(Object, ByteBuilder)}
+     * @param bean bean
+     * @param out builder the line is appended to
+     * @param separator UTF-8 bytes of separator
+     */
+    protected abstract void write(T bean, ByteBuilder out, byte[] separator);
+
+    /**
+     * Sets values of all fields, creating embedded beans on the way
+     * @param bean bean
+     * @param values values in order of default header
+     */
+    protected abstract void setValues(T bean, Object[] values);
+
+    /**
+     * Reads values of all fields. Fields of null embedded beans are null
+     * @param bean bean
+     * @return values in order of default header
+     */
+    protected abstract Object[] getValues(T bean);
+
+    protected final Object parseField(int column, String value) {
+        return columns.get(column).getType().parse(value);
+    }
+
+    protected final Object parseField(int column, byte[] bytes, int start, int end) {
+        return columns.get(column).parse(bytes, start, end);
+    }
+
+    protected final String formatField(int column, Object value) {
+        return columns.get(column).getType().toString(value);
+    }
+
+    protected final void writeField(int column, Object value, ByteBuilder out) {
+        columns.get(column).write(value, out);
+    }
+
+    /**
+     * @return position of separator or end of line if there's no separator
+     */
+    protected static int next(String line, String separator, int from) {
+        int end = line.indexOf(separator, from);
+        return end < 0 ? line.length() : end;
+    }
+
+    /**
+     * @return position of separator or end if there's no separator
+     */
+    protected static int next(byte[] bytes, byte[] separator, int from, int end) {
+        return BeanSerializer.indexOf(bytes, separator, from, end);
+    }
+
+    /**
+     * @return value if it's not null
+     * @throws IllegalStateException if value is null
+     */
+    protected static Object notNull(Object value, String field) {
+        if (value == null) {
+            throw new IllegalStateException("Can't set null to primitive field " + field);
+        }
+        return value;
+    }
+
+    protected static IllegalStateException tooFew(int count, int expected, String line) {
+        return new IllegalStateException("Too few fields in line (" + count + "). It should be equal to fields in object (" + expected + "). Line: '" + line + "'");
+    }
+
+    protected static IllegalStateException tooFew(int count, int expected, byte[] bytes, int start, int end) {
+        return tooFew(count, expected, Utf8.decode(bytes, start, end));
+    }
+
+    protected static IllegalStateException exceeded(int expected, String line) {
+        return new IllegalStateException("Number of fields in line exceeded number of fields in object (" + expected + "). Line: '" + line + "'");
+    }
+
+    protected static IllegalStateException exceeded(int expected, byte[] bytes, int start, int end) {
+        return exceeded(expected, Utf8.decode(bytes, start, end));
+    }
+
+    LinkedHashMap<String, BeanSerializer.FieldInfo> getFields() {
+        return new LinkedHashMap<String, BeanSerializer.FieldInfo>(fields);
+    }
+
+    /**
+     * @return fields in order of default header
+     */
+    List<BeanSerializer.FieldInfo> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Looks up generated schema of class. Result of lookup is cached per class
+     * @param cls bean class
+     * @return new schema instance or null if there's no generated schema
+     */
+    @SuppressWarnings("unchecked")
+    static <T> GeneratedSchema<T> find(Class<T> cls) {
+        WeakReference<Class<?>> ref = SCHEMAS.get(cls);
+        if (ref == null) {
+            ref = new WeakReference<Class<?>>(schemaClass(cls));
+            SCHEMAS.put(cls, ref);
+        }
+        Class<?> schemaClass = ref.get();
+        if (schemaClass == null) {
+            return null;
+        }
+        try {
+            return (GeneratedSchema<T>) schemaClass.newInstance();
+        } catch (Exception e) {
+            throw new IllegalStateException("Can't create instance of generated schema " + schemaClass.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Class<?> schemaClass(Class<?> cls) {
+        Class<?> schemaClass;
+        try {
+            schemaClass = Class.forName(cls.getName() + SUFFIX, true, cls.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        return GeneratedSchema.class.isAssignableFrom(schemaClass) ? schemaClass : null;
+    }
+}
@@ -0,0 +1,95 @@
+package com.scalemotion.tsvbean;
+
+/**
+ * HyperLogLog distinct count estimator. Takes 2^precision bytes; standard error is about 1.04/sqrt(2^precision)
+ * (0.8% for default precision 14). Not thread safe, partial estimators are combined with {@link #merge(HyperLogLog)}.
+ */
+public class HyperLogLog {
+    public static final int DEFAULT_PRECISION = 14;
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Precision should be between 4 and 18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Adds hash of value. Hash should be well mixed, all 64 bits are used
+     * @param hash hash of value
+     */
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        //position of the first 1 bit in the rest of hash. Sentinel bit limits the value
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * Adds characters of the string range
+     * @param str string
+     * @param start start offset, inclusive
+     * @param end end offset, exclusive
+     */
+    public void add(CharSequence str, int start, int end) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            h = (h ^ str.charAt(i)) * 0x100000001B3L;
+        }
+        addHash(LongTupleTable.mix(h));
+    }
+
+    /**
+     * Adds long value
+     * @param value value
+     */
+    public void add(long value) {
+        addHash(LongTupleTable.mix(value));
+    }
+
+    /**
+     * Merges other estimator of the same precision into this one
+     * @param other other estimator
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Can't merge estimators of different precision: " + precision + " and " + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * @return estimated number of distinct values
+     */
+    public long cardinality() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros != 0) {
+            //small range correction (linear counting)
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+}
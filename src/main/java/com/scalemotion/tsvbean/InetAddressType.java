@@ -1,11 +1,354 @@
 package com.scalemotion.tsvbean;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
 /**
- * Created by IntelliJ IDEA.
- * User: vklimontovich
- * Date: 5/29/12
- * Time: 1:29 AM
- * To change this template use File | Settings | File Templates.
+ * IPv4/IPv6 address type. Text is parsed by hand and the address is built with
+ * {@link InetAddress#getByAddress(byte[])}, so no name service lookup ever happens.
+ * <p/>
+ * Field may be declared as {@link InetAddress} or as <code>int</code>/{@link Integer}. In the latter
+ * case only IPv4 addresses are accepted and the address is kept as a primitive (see {@link #parseIPv4(CharSequence)}).
+ * IPv6 addresses may be kept as a pair of longs with {@link #parseIPv6(CharSequence, long[])}.
+ * Like other primitives, <code>int</code> field can't hold null: null column is read as 0 and is indistinguishable
+ * from 0.0.0.0 afterwards. Use {@link Integer} if null addresses should be kept.
+ * <p/>
+ * Binary form is a length byte (0 for null, 4 or 16) followed by address bytes; for <code>int</code> fields it's
+ * a plain int, for {@link Integer} fields it's a presence byte (0 for null, 1) followed by int.
  */
-public class InetAddressType {
+public class InetAddressType<T> implements DataType<T>, BinaryType<T>, ClassAware {
+    private boolean intMode = false;
+    //int mode of Integer field, which may hold null
+    private boolean boxed = false;
+    //value of null column. It's 0 for int field, so null and 0.0.0.0 are read the same way
+    private T nullValue = null;
+
+    @Override
+    public void setClass(Class cls) {
+        if (cls == int.class || cls == Integer.class) {
+            intMode = true;
+            boxed = cls == Integer.class;
+            nullValue = boxed ? null : (T) Integer.valueOf(0);
+        } else if (InetAddress.class.isAssignableFrom(cls)) {
+            intMode = false;
+            boxed = false;
+            nullValue = null;
+        } else {
+            throw new IllegalArgumentException("Class " + cls.getName() + " can't hold inet address. Use InetAddress, int or Integer");
+        }
+    }
+
+    @Override
+    public T parse(String str) {
+        if (str == null || str.isEmpty() || str.equals("null")) {
+            return nullValue;
+        }
+        if (intMode) {
+            return (T) Integer.valueOf(parseIPv4(str));
+        }
+        return (T) parseAddress(str);
+    }
+
+    @Override
+    public String toString(T object) {
+        if (object == null) {
+            return "null";
+        }
+        if (object instanceof Integer) {
+            return ipv4ToString((Integer) object);
+        }
+        return toString((InetAddress) object);
+    }
+
+    @Override
+    public String describe() {
+        return intMode ? "IPv4" : "InetAddress";
+    }
+
+    @Override
+    public T read(DataInput in) throws IOException {
+        if (intMode) {
+            if (boxed && in.readUnsignedByte() == 0) {
+                return null;
+            }
+            return (T) Integer.valueOf(in.readInt());
+        }
+        int len = in.readUnsignedByte();
+        if (len == 0) {
+            return null;
+        }
+        if (len != 4 && len != 16) {
+            throw new IOException("Bad inet address length: " + len);
+        }
+        byte[] addr = new byte[len];
+        in.readFully(addr);
+        return (T) InetAddress.getByAddress(addr);
+    }
+
+    @Override
+    public void write(T obj, DataOutput out) throws IOException {
+        if (intMode) {
+            if (boxed) {
+                out.writeByte(obj == null ? 0 : 1);
+                if (obj == null) {
+                    return;
+                }
+            }
+            out.writeInt(obj == null ? 0 : (Integer) obj);
+            return;
+        }
+        if (obj == null) {
+            out.writeByte(0);
+            return;
+        }
+        byte[] addr = ((InetAddress) obj).getAddress();
+        out.writeByte(addr.length);
+        out.write(addr);
+    }
+
+    /**
+     * Parses IPv4 or IPv6 address without any name service lookup
+     * @param str textual address
+     * @return address
+     */
+    public static InetAddress parseAddress(CharSequence str) {
+        byte[] addr;
+        if (indexOf(str, ':', 0, str.length()) >= 0) {
+            addr = new byte[16];
+            parseIPv6(str, addr);
+        } else {
+            addr = new byte[4];
+            BinaryHelper.toBytes(parseIPv4(str), addr);
+        }
+        try {
+            return InetAddress.getByAddress(addr);
+        } catch (UnknownHostException e) {
+            //happens only if length of array is wrong
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parses dotted-quad IPv4 address to int (first octet is the most significant byte)
+     * @param str textual address
+     * @return address as int
+     */
+    public static int parseIPv4(CharSequence str) {
+        return parseIPv4(str, 0, str.length());
+    }
+
+    private static int parseIPv4(CharSequence str, int start, int end) {
+        int result = 0;
+        int octets = 0;
+        int i = start;
+        while (i < end) {
+            int octet = 0;
+            int digits = 0;
+            char c;
+            while (i < end && (c = str.charAt(i)) != '.') {
+                if (c < '0' || c > '9' || digits == 3) {
+                    throw badAddress(str);
+                }
+                octet = octet * 10 + (c - '0');
+                digits++;
+                i++;
+            }
+            if (digits == 0 || octet > 255 || octets == 4) {
+                throw badAddress(str);
+            }
+            result = (result << 8) | octet;
+            octets++;
+            if (i < end) {
+                //skip dot. Dot can't be the last char
+                if (++i == end) {
+                    throw badAddress(str);
+                }
+            }
+        }
+        if (octets != 4) {
+            throw badAddress(str);
+        }
+        return result;
+    }
+
+    /**
+     * Parses IPv6 address (including compressed and IPv4-suffixed forms) to the pair of longs
+     * @param str textual address
+     * @param target array of at least 2 elements. Most significant half goes to 0 index, least - to 1
+     */
+    public static void parseIPv6(CharSequence str, long[] target) {
+        byte[] addr = new byte[16];
+        parseIPv6(str, addr);
+        target[0] = BinaryHelper.longFromBytes(addr, 0);
+        target[1] = BinaryHelper.longFromBytes(addr, 8);
+    }
+
+    private static void parseIPv6(CharSequence str, byte[] addr) {
+        int len = str.length();
+        int pos = 0;
+        //index in addr where "::" was met
+        int gap = -1;
+        int i = 0;
+        if (len >= 2 && str.charAt(0) == ':') {
+            if (str.charAt(1) != ':') {
+                throw badAddress(str);
+            }
+            gap = 0;
+            i = 2;
+        }
+        while (i < len) {
+            if (pos == 16) {
+                throw badAddress(str);
+            }
+            int groupStart = i;
+            int group = 0;
+            while (i < len) {
+                int d = hexDigit(str.charAt(i));
+                if (d < 0) {
+                    break;
+                }
+                group = (group << 4) | d;
+                i++;
+            }
+            if (i < len && str.charAt(i) == '.') {
+                //IPv4 suffix, e.g. ::ffff:10.0.0.1
+                if (pos > 12) {
+                    throw badAddress(str);
+                }
+                BinaryHelper.toBytes(parseIPv4(str, groupStart, len), addr, pos);
+                pos += 4;
+                break;
+            }
+            if (i == groupStart || i - groupStart > 4) {
+                throw badAddress(str);
+            }
+            addr[pos++] = (byte) (group >> 8);
+            addr[pos++] = (byte) group;
+            if (i < len) {
+                if (str.charAt(i) != ':' || ++i == len) {
+                    throw badAddress(str);
+                }
+                if (str.charAt(i) == ':') {
+                    if (gap >= 0) {
+                        throw badAddress(str);
+                    }
+                    gap = pos;
+                    i++;
+                }
+            }
+        }
+        if (gap >= 0) {
+            int tail = pos - gap;
+            if (tail == 16 - gap) {
+                //"::" should stand for at least one group
+                throw badAddress(str);
+            }
+            System.arraycopy(addr, gap, addr, 16 - tail, tail);
+            for (int j = gap; j < 16 - tail; j++) {
+                addr[j] = 0;
+            }
+        } else if (pos != 16) {
+            throw badAddress(str);
+        }
+    }
+
+    //unlike Character.digit accepts ASCII digits only
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * Formats int as dotted-quad IPv4 address
+     * @param ip address as int
+     * @return textual address
+     */
+    public static String ipv4ToString(int ip) {
+        StringBuilder sb = new StringBuilder(15);
+        sb.append((ip >>> 24) & 0xff).append('.')
+                .append((ip >>> 16) & 0xff).append('.')
+                .append((ip >>> 8) & 0xff).append('.')
+                .append(ip & 0xff);
+        return sb.toString();
+    }
+
+    /**
+     * Formats IPv6 address given as pair of longs in RFC 5952 form (lower case, longest zero run compressed)
+     * @param high most significant half
+     * @param low least significant half
+     * @return textual address
+     */
+    public static String ipv6ToString(long high, long low) {
+        int[] groups = new int[8];
+        for (int i = 0; i < 4; i++) {
+            groups[i] = (int) (high >>> (48 - i * 16)) & 0xffff;
+            groups[i + 4] = (int) (low >>> (48 - i * 16)) & 0xffff;
+        }
+        int bestStart = -1;
+        int bestLen = 1;
+        for (int i = 0; i < 8; ) {
+            if (groups[i] != 0) {
+                i++;
+                continue;
+            }
+            int j = i;
+            while (j < 8 && groups[j] == 0) {
+                j++;
+            }
+            if (j - i > bestLen) {
+                bestStart = i;
+                bestLen = j - i;
+            }
+            i = j;
+        }
+        StringBuilder sb = new StringBuilder(39);
+        for (int i = 0; i < 8; i++) {
+            if (i == bestStart) {
+                sb.append("::");
+                i += bestLen - 1;
+                continue;
+            }
+            if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ':') {
+                sb.append(':');
+            }
+            sb.append(Integer.toHexString(groups[i]));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Formats address without reverse lookup
+     * @param address address
+     * @return dotted-quad for IPv4, RFC 5952 form for IPv6
+     */
+    public static String toString(InetAddress address) {
+        byte[] addr = address.getAddress();
+        if (address instanceof Inet4Address) {
+            return ipv4ToString(BinaryHelper.intFromBytes(addr));
+        }
+        return ipv6ToString(BinaryHelper.longFromBytes(addr, 0), BinaryHelper.longFromBytes(addr, 8));
+    }
+
+    private static int indexOf(CharSequence str, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (str.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static IllegalStateException badAddress(CharSequence str) {
+        return new IllegalStateException("Can't parse inet address '" + str + "'");
+    }
 }
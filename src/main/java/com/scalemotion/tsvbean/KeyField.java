@@ -1,11 +1,14 @@
 package com.scalemotion.tsvbean;
 
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
 /**
- * Created by IntelliJ IDEA.
- * User: vklimontovich
- * Date: 5/29/12
- * Time: 1:25 AM
- * To change this template use File | Settings | File Templates.
+ * Marks {@link Field} as a part of the bean key. Key is used for partitioning (see {@link PartitionedWriter})
  */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
 public @interface KeyField {
 }
@@ -0,0 +1,147 @@
+package com.scalemotion.tsvbean;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Reads UTF-8 lines from stream and keeps track of number of bytes consumed, so callers may
+ * map lines to file offsets. Lines are terminated with '\n', trailing '\r' is dropped. Not thread safe.
+ */
+final class LineReader {
+    static final Charset UTF8 = Charset.forName("UTF-8");
+    private final InputStream in;
+    private final byte[] buffer;
+    private int bufferPos = 0;
+    private int bufferLimit = 0;
+    private byte[] line = new byte[256];
+    private long position;
+    private boolean terminated = true;
+
+    LineReader(InputStream in, long position, int bufferSize) {
+        this.in = in;
+        this.position = position;
+        this.buffer = new byte[bufferSize];
+    }
+
+    LineReader(InputStream in, long position) {
+        this(in, position, 64 * 1024);
+    }
+
+    /**
+     * Reads next line
+     * @return line without terminator or null if end of stream is reached
+     * @throws IOException if stream can't be read
+     */
+    String readLine() throws IOException {
+        int length = read();
+        return length < 0 ? null : new String(line, 0, length, UTF8);
+    }
+
+    /**
+     * Reads next line without decoding it
+     * @param out builder raw line without terminator is appended to
+     * @return false if end of stream is reached
+     * @throws IOException if stream can't be read
+     */
+    boolean readLine(ByteBuilder out) throws IOException {
+        int length = read();
+        if (length < 0) {
+            return false;
+        }
+        out.append(line, 0, length);
+        return true;
+    }
+
+    /**
+     * Reads next line into line buffer
+     * @return length of line without terminator or -1 if end of stream is reached
+     */
+    private int read() throws IOException {
+        int length = 0;
+        while (true) {
+            if (bufferPos == bufferLimit) {
+                bufferLimit = in.read(buffer);
+                bufferPos = 0;
+                if (bufferLimit <= 0) {
+                    bufferLimit = 0;
+                    if (length == 0) {
+                        return -1;
+                    }
+                    terminated = false;
+                    return trim(length);
+                }
+            }
+            int start = bufferPos;
+            int end = start;
+            while (end < bufferLimit && buffer[end] != '\n') {
+                end++;
+            }
+            int chunk = end - start;
+            if (length + chunk > line.length) {
+                line = Arrays.copyOf(line, Math.max(line.length * 2, length + chunk));
+            }
+            System.arraycopy(buffer, start, line, length, chunk);
+            length += chunk;
+            position += chunk;
+            if (end < bufferLimit) {
+                //skip '\n'
+                bufferPos = end + 1;
+                position++;
+                terminated = true;
+                return trim(length);
+            }
+            bufferPos = bufferLimit;
+        }
+    }
+
+    private int trim(int length) {
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        return length;
+    }
+
+    /**
+     * Skips bytes up to and including next '\n'
+     * @return false if end of stream was reached before '\n'
+     * @throws IOException if stream can't be read
+     */
+    boolean skipLine() throws IOException {
+        while (true) {
+            if (bufferPos == bufferLimit) {
+                bufferLimit = in.read(buffer);
+                bufferPos = 0;
+                if (bufferLimit <= 0) {
+                    bufferLimit = 0;
+                    return false;
+                }
+            }
+            while (bufferPos < bufferLimit) {
+                position++;
+                if (buffer[bufferPos++] == '\n') {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return offset of the first byte which wasn't returned yet
+     */
+    long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return false if the last line returned was not terminated with '\n' (i.e. stream ended in the middle of it)
+     */
+    boolean isTerminated() {
+        return terminated;
+    }
+
+    void close() throws IOException {
+        in.close();
+    }
+}
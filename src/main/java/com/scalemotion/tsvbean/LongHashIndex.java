@@ -0,0 +1,117 @@
+package com.scalemotion.tsvbean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hash index of beans by integral, date (millis) or floating point field. Keys are kept in open addressing table
+ * of primitive longs; beans with equal keys are chained through an int array indexed by bean position, so the
+ * index takes 28 to 52 bytes per bean (table capacity is a power of two of at least twice the number of beans)
+ * and doesn't box anything. Beans with null key are not indexed.
+ * Floating point keys are stored as order preserving long codes, see {@link BeanIndexBuilder#toKey(Object, boolean)};
+ * methods taking <code>long</code> key expect such code for floating point fields, use {@link #get(Object)} for values.
+ * Immutable, built by {@link BeanIndexBuilder}.
+ *
+ * @param <T> type of bean
+ */
+public class LongHashIndex<T> {
+    private static final int EMPTY = -1;
+    private final List<T> beans;
+    private final long[] tableKeys;
+    private final int[] tableHeads;
+    private final int[] next;
+    private final boolean floating;
+    private final int distinct;
+
+    LongHashIndex(List<T> beans, long[] keys, boolean[] nulls, boolean floating) {
+        this.beans = beans;
+        this.floating = floating;
+        int capacity = 16;
+        while (capacity < beans.size() * 2) {
+            capacity <<= 1;
+        }
+        this.tableKeys = new long[capacity];
+        this.tableHeads = new int[capacity];
+        Arrays.fill(tableHeads, EMPTY);
+        this.next = new int[beans.size()];
+        int count = 0;
+        //going backwards keeps chains in order of positions
+        for (int pos = beans.size() - 1; pos >= 0; pos--) {
+            if (nulls[pos]) {
+                continue;
+            }
+            int slot = slot(keys[pos]);
+            if (tableHeads[slot] == EMPTY) {
+                tableKeys[slot] = keys[pos];
+                count++;
+            }
+            next[pos] = tableHeads[slot];
+            tableHeads[slot] = pos;
+        }
+        this.distinct = count;
+    }
+
+    private int slot(long key) {
+        int mask = tableKeys.length - 1;
+        int slot = (int) LongTupleTable.mix(key) & mask;
+        while (tableHeads[slot] != EMPTY && tableKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * @param key key, encoded key for floating point field
+     * @return beans with given key in order of their positions
+     */
+    public List<T> get(long key) {
+        List<T> res = new ArrayList<T>();
+        for (int pos = tableHeads[slot(key)]; pos != EMPTY; pos = next[pos]) {
+            res.add(beans.get(pos));
+        }
+        return res;
+    }
+
+    /**
+     * @param key key value (number or date)
+     * @return beans with given key in order of their positions
+     */
+    public List<T> get(Object key) {
+        return get(BeanIndexBuilder.toKey(key, floating));
+    }
+
+    /**
+     * @param key key
+     * @return the first bean with given key or null
+     */
+    public T getFirst(long key) {
+        int pos = tableHeads[slot(key)];
+        return pos == EMPTY ? null : beans.get(pos);
+    }
+
+    /**
+     * @param key key
+     * @return positions of beans with given key
+     */
+    public int[] positions(long key) {
+        int count = 0;
+        int head = tableHeads[slot(key)];
+        for (int pos = head; pos != EMPTY; pos = next[pos]) {
+            count++;
+        }
+        int[] res = new int[count];
+        int i = 0;
+        for (int pos = head; pos != EMPTY; pos = next[pos]) {
+            res[i++] = pos;
+        }
+        return res;
+    }
+
+    /**
+     * @return number of distinct keys
+     */
+    public int distinct() {
+        return distinct;
+    }
+}
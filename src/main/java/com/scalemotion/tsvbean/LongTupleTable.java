@@ -0,0 +1,130 @@
+package com.scalemotion.tsvbean;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash table which assigns dense ids (0, 1, 2...) to fixed-width tuples of longs.
+ * Tuples are stored in a single long array, so there's no per-entry allocation. Not thread safe.
+ */
+final class LongTupleTable {
+    private static final int EMPTY = -1;
+    private final int width;
+    private long[] tuples;
+    private int[] slots;
+    private int size = 0;
+
+    LongTupleTable(int width, int expectedSize) {
+        this.width = width;
+        int capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        this.slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        this.tuples = new long[Math.max(1, width * (capacity >> 1))];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int width() {
+        return width;
+    }
+
+    long get(int id, int i) {
+        return tuples[id * width + i];
+    }
+
+    /**
+     * Returns id of tuple, adding it if it is not in table yet
+     * @param tuple tuple, only first width elements are used
+     * @return id of tuple
+     */
+    int getOrAdd(long[] tuple) {
+        return find(tuple, true);
+    }
+
+    /**
+     * Returns id of tuple
+     * @param tuple tuple, only first width elements are used
+     * @return id of tuple or -1 if tuple is not in table
+     */
+    int get(long[] tuple) {
+        return find(tuple, false);
+    }
+
+    private int find(long[] tuple, boolean add) {
+        int mask = slots.length - 1;
+        int slot = hash(tuple, 0, width) & mask;
+        while (true) {
+            int id = slots[slot];
+            if (id == EMPTY) {
+                if (!add) {
+                    return EMPTY;
+                }
+                return add(tuple, slot);
+            }
+            if (equals(id, tuple)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private int add(long[] tuple, int slot) {
+        int id = size++;
+        if ((id + 1) * width > tuples.length) {
+            tuples = Arrays.copyOf(tuples, tuples.length * 2);
+        }
+        System.arraycopy(tuple, 0, tuples, id * width, width);
+        slots[slot] = id;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private boolean equals(int id, long[] tuple) {
+        int offset = id * width;
+        for (int i = 0; i < width; i++) {
+            if (tuples[offset + i] != tuple[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        Arrays.fill(slots, EMPTY);
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hash(tuples, id * width, width) & mask;
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id;
+        }
+    }
+
+    private static int hash(long[] values, int offset, int length) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int i = offset; i < offset + length; i++) {
+            h = mix(h ^ values[i]);
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * MurmurHash3 64-bit finalizer
+     */
+    static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
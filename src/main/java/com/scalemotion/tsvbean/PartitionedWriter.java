@@ -0,0 +1,312 @@
+package com.scalemotion.tsvbean;
+
+import com.google.common.base.Joiner;
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Splits beans into N shard outputs by hash of {@link KeyField} values. UUID, long and int keys are hashed by
+ * their binary form ({@link BinaryHelper}), other keys by UTF-8 bytes of their text form; hash is
+ * {@link BinaryHelper#murmurHash(byte[])}, so the same key always goes to the same shard.
+ * <p/>
+ * Beans are collected into per shard batches by the calling thread; batches are serialized and written by
+ * executor threads. Batches of the same shard are written one by one in order they were filled, different
+ * shards are written concurrently. Number of batches in flight is limited, so a slow output blocks the caller
+ * instead of consuming memory.
+ * <p/>
+ * Beans are serialized after {@link #write(Object)} returns, so a bean must not be modified once it was passed to
+ * the writer; don't reuse one mutable instance for several rows.
+ * <p/>
+ * {@link #write(Object)} should be called from a single thread. {@link #close()} must be called to flush batches and
+ * close outputs; executor isn't shut down.
+ *
+ * @param <T> type of bean
+ */
+public class PartitionedWriter<T> implements Closeable {
+    private static final Logger LOG = Logger.getLogger(PartitionedWriter.class);
+    /**
+     * Opens output of shard
+     */
+    public static interface OutputFactory {
+        public OutputStream open(int shard) throws IOException;
+    }
+
+    private final BeanSerializer<T> serializer;
+    private final List<BeanSerializer.FieldInfo> keyFields;
+    private final ExecutorService executor;
+    private final List<Shard> shards;
+    private final Semaphore inFlight;
+    private int batchSize = 1000;
+
+    /**
+     * Creates writer
+     * @param serializer serializer of beans. Bean class should have at least one {@link KeyField}
+     * @param outputs factory of shard outputs
+     * @param shards number of shards
+     * @param writeHeader whether header line should be written to each shard
+     * @param executor executor which serializes and writes batches
+     * @throws IOException if output can't be opened
+     */
+    public PartitionedWriter(BeanSerializer<T> serializer, OutputFactory outputs, int shards, boolean writeHeader, ExecutorService executor) throws IOException {
+        this.serializer = serializer;
+        this.keyFields = serializer.getKeyFields();
+        if (keyFields.isEmpty()) {
+            throw new IllegalStateException(serializer.describe() + " has no fields marked with @KeyField");
+        }
+        this.executor = executor;
+        this.shards = new ArrayList<Shard>(shards);
+        this.inFlight = new Semaphore(Math.max(2 * shards, 4 * Runtime.getRuntime().availableProcessors()));
+        String header = Joiner.on(serializer.getSeparator()).join(serializer.getHeader());
+        try {
+            for (int i = 0; i < shards; i++) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(outputs.open(i), LineReader.UTF8), 64 * 1024);
+                this.shards.add(new Shard(writer));
+                if (writeHeader) {
+                    writer.write(header);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            try {
+                closeOutputs();
+            } catch (IOException closeFailure) {
+                //original failure is more important
+                LOG.warn("Failed to close shard outputs", closeFailure);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Creates writer to files <code>part-00000.tsv[.gz]</code>, <code>part-00001.tsv[.gz]</code>... in directory
+     * @param serializer serializer of beans
+     * @param directory target directory
+     * @param shards number of shards
+     * @param gzip whether shards should be compressed
+     * @param executor executor which serializes and writes batches
+     * @param <T> type of bean
+     * @return writer
+     * @throws IOException if file can't be created
+     */
+    public static <T> PartitionedWriter<T> toDirectory(BeanSerializer<T> serializer, File directory, int shards, boolean gzip, ExecutorService executor) throws IOException {
+        boolean[] compressed = new boolean[shards];
+        Arrays.fill(compressed, gzip);
+        return toDirectory(serializer, directory, compressed, executor);
+    }
+
+    /**
+     * Creates writer to files <code>part-00000.tsv[.gz]</code>, <code>part-00001.tsv[.gz]</code>... in directory,
+     * compression is chosen per shard
+     * @param serializer serializer of beans
+     * @param directory target directory
+     * @param gzip whether each shard should be compressed, number of shards is length of the array
+     * @param executor executor which serializes and writes batches
+     * @param <T> type of bean
+     * @return writer
+     * @throws IOException if file can't be created
+     */
+    public static <T> PartitionedWriter<T> toDirectory(BeanSerializer<T> serializer, final File directory, boolean[] gzip, ExecutorService executor) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create directory " + directory);
+        }
+        final boolean[] compressed = gzip.clone();
+        return new PartitionedWriter<T>(serializer, new OutputFactory() {
+            @Override
+            public OutputStream open(int shard) throws IOException {
+                File file = new File(directory, String.format("part-%05d.tsv%s", shard, compressed[shard] ? ".gz" : ""));
+                OutputStream out = new FileOutputStream(file);
+                return compressed[shard] ? new GZIPOutputStream(out, 64 * 1024) : new BufferedOutputStream(out, 64 * 1024);
+            }
+        }, compressed.length, true, executor);
+    }
+
+    /**
+     * @param batchSize number of beans collected for shard before they are passed to executor
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns shard of bean
+     * @param bean bean
+     * @return shard index
+     */
+    public int shardOf(T bean) {
+        int hash = BinaryHelper.murmurHash(keyBytes(bean));
+        return (hash & Integer.MAX_VALUE) % shards.size();
+    }
+
+    private byte[] keyBytes(T bean) {
+        if (keyFields.size() == 1) {
+            return keyBytes(keyFields.get(0), bean);
+        }
+        ByteArrayOutputStream buff = new ByteArrayOutputStream();
+        for (BeanSerializer.FieldInfo f : keyFields) {
+            byte[] b = keyBytes(f, bean);
+            buff.write(b, 0, b.length);
+        }
+        return buff.toByteArray();
+    }
+
+    private static byte[] keyBytes(BeanSerializer.FieldInfo field, Object bean) {
+        Object value = field.get(bean);
+        if (value instanceof UUID) {
+            return BinaryHelper.toBytes((UUID) value);
+        } else if (value instanceof Long) {
+            return BinaryHelper.toBytes((long) (Long) value);
+        } else if (value instanceof Integer) {
+            byte[] b = new byte[4];
+            BinaryHelper.toBytes((int) (Integer) value, b);
+            return b;
+        }
+        return field.getType().toString(value).getBytes(LineReader.UTF8);
+    }
+
+    /**
+     * Routes bean to its shard. Bean is serialized later by executor thread, so it must not be modified afterwards
+     * @param bean bean
+     * @throws IOException if one of shards failed to write
+     */
+    public void write(T bean) throws IOException {
+        Shard shard = shards.get(shardOf(bean));
+        shard.checkFailure();
+        shard.batch.add(bean);
+        if (shard.batch.size() >= batchSize) {
+            submit(shard);
+        }
+    }
+
+    private void submit(Shard shard) throws IOException {
+        List<T> batch = shard.batch;
+        shard.batch = new ArrayList<T>(batchSize);
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for shard writers");
+        }
+        shard.submit(batch);
+    }
+
+    /**
+     * Writes remaining batches and closes shard outputs
+     * @throws IOException if one of shards failed to write
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            for (Shard shard : shards) {
+                if (!shard.batch.isEmpty()) {
+                    submit(shard);
+                }
+            }
+            for (Shard shard : shards) {
+                shard.await();
+            }
+            for (Shard shard : shards) {
+                shard.checkFailure();
+            }
+        } finally {
+            closeOutputs();
+        }
+    }
+
+    private void closeOutputs() throws IOException {
+        IOException failure = null;
+        for (Shard shard : shards) {
+            try {
+                shard.writer.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private class Shard implements Runnable {
+        private final Writer writer;
+        //filled by caller thread only
+        private List<T> batch = new ArrayList<T>(batchSize);
+        //guarded by this
+        private final ArrayDeque<List<T>> queue = new ArrayDeque<List<T>>();
+        private boolean running = false;
+        private volatile IOException failure;
+
+        private Shard(Writer writer) {
+            this.writer = writer;
+        }
+
+        private synchronized void submit(List<T> batch) {
+            queue.add(batch);
+            if (!running) {
+                running = true;
+                try {
+                    executor.execute(this);
+                } catch (RuntimeException e) {
+                    running = false;
+                    queue.remove(batch);
+                    inFlight.release();
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                List<T> next;
+                synchronized (this) {
+                    next = queue.poll();
+                    if (next == null) {
+                        running = false;
+                        notifyAll();
+                        return;
+                    }
+                }
+                try {
+                    if (failure == null) {
+                        for (T bean : next) {
+                            writer.write(serializer.toString(bean));
+                            writer.write('\n');
+                        }
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                } catch (RuntimeException e) {
+                    failure = new IOException(e.getMessage(), e);
+                } finally {
+                    inFlight.release();
+                }
+            }
+        }
+
+        private synchronized void await() throws InterruptedIOException {
+            while (running) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for shard writers");
+                }
+            }
+        }
+
+        private void checkFailure() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
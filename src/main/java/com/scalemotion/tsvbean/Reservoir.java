@@ -0,0 +1,88 @@
+package com.scalemotion.tsvbean;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Uniform random sample of fixed size from a stream of unknown length (reservoir sampling, algorithm R).
+ * Not thread safe, partial samples are combined with {@link #merge(Reservoir)}.
+ *
+ * @param <E> type of elements
+ */
+public class Reservoir<E> {
+    private final int capacity;
+    private final Random random;
+    private final List<E> items;
+    private long seen = 0;
+
+    public Reservoir(int capacity, Random random) {
+        this.capacity = capacity;
+        this.random = random;
+        this.items = new ArrayList<E>(Math.min(capacity, 1024));
+    }
+
+    public Reservoir(int capacity) {
+        this(capacity, new Random());
+    }
+
+    /**
+     * Offers element to the sample
+     * @param item element
+     */
+    public void add(E item) {
+        seen++;
+        if (items.size() < capacity) {
+            items.add(item);
+        } else {
+            long slot = (long) (random.nextDouble() * seen);
+            if (slot < capacity) {
+                items.set((int) slot, item);
+            }
+        }
+    }
+
+    /**
+     * Merges other sample into this one. Elements are taken from both samples proportionally to number of
+     * elements each of them has seen
+     * @param other other sample
+     */
+    public void merge(Reservoir<E> other) {
+        List<E> mine = new ArrayList<E>(items);
+        List<E> theirs = new ArrayList<E>(other.items);
+        Collections.shuffle(mine, random);
+        Collections.shuffle(theirs, random);
+        long mineWeight = seen;
+        long theirsWeight = other.seen;
+        items.clear();
+        int i = 0;
+        int j = 0;
+        while (items.size() < capacity && (i < mine.size() || j < theirs.size())) {
+            boolean takeMine;
+            if (i == mine.size()) {
+                takeMine = false;
+            } else if (j == theirs.size()) {
+                takeMine = true;
+            } else {
+                takeMine = random.nextDouble() * (mineWeight + theirsWeight) < mineWeight;
+            }
+            items.add(takeMine ? mine.get(i++) : theirs.get(j++));
+        }
+        seen += other.seen;
+    }
+
+    /**
+     * @return sampled elements
+     */
+    public List<E> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * @return number of elements offered to the sample
+     */
+    public long getSeen() {
+        return seen;
+    }
+}
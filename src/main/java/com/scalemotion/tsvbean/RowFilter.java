@@ -0,0 +1,208 @@
+package com.scalemotion.tsvbean;
+
+import com.google.common.base.Predicate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set of field conditions checked by {@link BeanSerializer#parse(String, RowFilter)} while line is tokenized.
+ * Line is rejected as soon as first failed condition is met, so columns after it are never parsed.
+ * <p/>
+ * Equality conditions on enum and string fields are checked on raw characters of the line, without parsing
+ * the column. All other conditions are checked on parsed value. Conditions on the same field are combined with AND.
+ * Raw checks accept the same lines as checks of parsed beans would: null of enum field is matched with "null" column,
+ * string field is never null after parsing ("null" column is a string too), so null can't be used as its value.
+ * <p/>
+ * Filter is bound to the serializer it was created for and may be shared between threads once configured.
+ *
+ * @param <T> type of bean
+ */
+public class RowFilter<T> {
+    private final BeanSerializer<T> serializer;
+    private final Map<String, Condition> conditions = new LinkedHashMap<String, Condition>();
+    private volatile Compiled compiled;
+
+    public RowFilter(BeanSerializer<T> serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * Accepts lines where field is equal to value
+     * @param field field name
+     * @param value expected value
+     * @return this filter
+     */
+    public RowFilter<T> equalTo(String field, Object value) {
+        return in(field, value);
+    }
+
+    /**
+     * Accepts lines where field is equal to one of values
+     * @param field field name
+     * @param values expected values. Null isn't allowed for string fields, they are never null after parsing
+     * @return this filter
+     */
+    public RowFilter<T> in(String field, final Object... values) {
+        BeanSerializer.FieldInfo fieldInfo = serializer.getField(field);
+        DataType type = fieldInfo.getType();
+        if (isRawComparable(type)) {
+            Class cls = type instanceof EnumType ? ((EnumType) type).getEnumClass() : String.class;
+            String[] raw = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null && cls == String.class) {
+                    throw new IllegalArgumentException("String field '" + field + "' is never null, use \"null\" to match null column");
+                }
+                if (values[i] != null && !cls.isInstance(values[i])) {
+                    throw new IllegalArgumentException("Value '" + values[i] + "' of " + values[i].getClass().getName()
+                            + " can't be compared with field '" + field + "' of " + cls.getName());
+                }
+                raw[i] = type.toString(values[i]);
+            }
+            condition(field).rawValues.add(raw);
+        } else {
+            condition(field).predicates.add(new Predicate<Object>() {
+                @Override
+                public boolean apply(Object input) {
+                    for (Object v : values) {
+                        if (v == null ? input == null : v.equals(input)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            });
+        }
+        return this;
+    }
+
+    /**
+     * Accepts lines where field is not null and is greater or equal to bound
+     * @param field field name
+     * @param bound lower bound, inclusive
+     * @return this filter
+     */
+    public RowFilter<T> atLeast(String field, final Comparable bound) {
+        return matches(field, new Predicate<Object>() {
+            @Override
+            public boolean apply(Object input) {
+                return input != null && bound.compareTo(input) <= 0;
+            }
+        });
+    }
+
+    /**
+     * Accepts lines where field is not null and is less or equal to bound
+     * @param field field name
+     * @param bound upper bound, inclusive
+     * @return this filter
+     */
+    public RowFilter<T> atMost(String field, final Comparable bound) {
+        return matches(field, new Predicate<Object>() {
+            @Override
+            public boolean apply(Object input) {
+                return input != null && bound.compareTo(input) >= 0;
+            }
+        });
+    }
+
+    /**
+     * Accepts lines where parsed value of field matches predicate
+     * @param field field name
+     * @param predicate predicate
+     * @return this filter
+     */
+    public RowFilter<T> matches(String field, Predicate<?> predicate) {
+        serializer.getField(field);
+        condition(field).predicates.add((Predicate<Object>) predicate);
+        return this;
+    }
+
+    private synchronized Condition condition(String field) {
+        Condition condition = conditions.get(field);
+        if (condition == null) {
+            condition = new Condition();
+            conditions.put(field, condition);
+        }
+        compiled = null;
+        return condition;
+    }
+
+    private static boolean isRawComparable(DataType type) {
+        return type instanceof EnumType || (type instanceof ScalarType && ((ScalarType) type).getScalarClass() == String.class);
+    }
+
+    /**
+     * Returns conditions by column for given header
+     * @param fields header
+     * @return array of conditions, null element means column isn't checked
+     */
+    Condition[] getConditions(List<BeanSerializer.FieldInfo> fields) {
+        Compiled c = compiled;
+        if (c == null || c.fields != fields) {
+            c = compile(fields);
+            compiled = c;
+        }
+        return c.conditions;
+    }
+
+    private synchronized Compiled compile(List<BeanSerializer.FieldInfo> fields) {
+        Condition[] res = new Condition[fields.size()];
+        int found = 0;
+        for (int i = 0; i < res.length; i++) {
+            res[i] = conditions.get(fields.get(i).getName());
+            if (res[i] != null) {
+                found++;
+            }
+        }
+        if (found != conditions.size()) {
+            throw new IllegalStateException("Some of filtered fields " + conditions.keySet() + " are not in header");
+        }
+        return new Compiled(fields, res);
+    }
+
+    private static class Compiled {
+        private final List<BeanSerializer.FieldInfo> fields;
+        private final Condition[] conditions;
+
+        private Compiled(List<BeanSerializer.FieldInfo> fields, Condition[] conditions) {
+            this.fields = fields;
+            this.conditions = conditions;
+        }
+    }
+
+    static class Condition {
+        private final List<String[]> rawValues = new ArrayList<String[]>();
+        private final List<Predicate<Object>> predicates = new ArrayList<Predicate<Object>>();
+
+        boolean acceptsRaw(String line, int start, int end) {
+            for (int i = 0, rawSize = rawValues.size(); i < rawSize; i++) {
+                if (!matchesAny(rawValues.get(i), line, start, end)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean matchesAny(String[] values, String line, int start, int end) {
+            int length = end - start;
+            for (String v : values) {
+                if (v.length() == length && line.regionMatches(start, v, 0, length)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean accepts(Object value) {
+            for (int i = 0, predicatesSize = predicates.size(); i < predicatesSize; i++) {
+                if (!predicates.get(i).apply(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.scalemotion.tsvbean;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lazy view of the line. Keeps offsets of fields in the raw line; line is tokenized only as far as the
+ * requested column and field is parsed with its {@link DataType} only on first access. Parsed values are cached.
+ * <p/>
+ * View is bound to the header serializer had when view was created. Not thread safe.
+ *
+ * @param <T> type of bean
+ */
+public class RowView<T> {
+    private static final Object NOT_PARSED = new Object();
+    private final BeanSerializer<T> serializer;
+    private final List<BeanSerializer.FieldInfo> fields;
+    private final Map<String, Integer> columnIndex;
+    private final String line;
+    private final String separator;
+    //start and end offsets of columns which were already tokenized
+    private final int[] starts;
+    private final int[] ends;
+    private int tokenized = 0;
+    private final Object[] values;
+
+    RowView(BeanSerializer<T> serializer, String line) {
+        this.serializer = serializer;
+        this.fields = serializer.getFieldList();
+        this.columnIndex = serializer.getColumnIndex();
+        this.line = line;
+        this.separator = serializer.getSeparator();
+        this.starts = new int[fields.size()];
+        this.ends = new int[fields.size()];
+        this.values = new Object[fields.size()];
+        Arrays.fill(values, NOT_PARSED);
+    }
+
+    /**
+     * @return raw line
+     */
+    public String getLine() {
+        return line;
+    }
+
+    /**
+     * @return number of columns
+     */
+    public int size() {
+        return fields.size();
+    }
+
+    /**
+     * Returns parsed value of field
+     * @param name name of field
+     * @return parsed value
+     */
+    public Object get(String name) {
+        return get(column(name));
+    }
+
+    /**
+     * Returns parsed value of column
+     * @param column column index
+     * @return parsed value
+     */
+    public Object get(int column) {
+        Object val = values[column];
+        if (val == NOT_PARSED) {
+            val = fields.get(column).getType().parse(getRaw(column));
+            values[column] = val;
+        }
+        return val;
+    }
+
+    /**
+     * Returns raw (not parsed) value of field
+     * @param name name of field
+     * @return raw value
+     */
+    public String getRaw(String name) {
+        return getRaw(column(name));
+    }
+
+    /**
+     * Returns raw (not parsed) value of column
+     * @param column column index
+     * @return raw value
+     */
+    public String getRaw(int column) {
+        tokenize(column);
+        return line.substring(starts[column], ends[column]);
+    }
+
+    /**
+     * Builds bean from the view. Fields which were accessed already are not parsed again
+     * @return bean
+     */
+    public T toBean() {
+        if (fields.isEmpty()) {
+            //the same way as parse() does, there's no column the line could be put to
+            throw new IllegalStateException("Number of fields in line exceeded number of fields in object (0). Line: '" + line + "'");
+        }
+        tokenize(fields.size() - 1);
+        if (ends[fields.size() - 1] != line.length()) {
+            throw new IllegalStateException("Number of fields in line exceeded number of fields in object (" + fields.size() + "). Line: '" + line + "'");
+        }
+        Object[] parsed = new Object[fields.size()];
+        for (int i = 0, fieldsSize = fields.size(); i < fieldsSize; i++) {
+            parsed[i] = get(i);
+        }
+        T instance = serializer.newInstance();
+        serializer.setValues(fields, instance, parsed);
+        return instance;
+    }
+
+    private int column(String name) {
+        Integer column = columnIndex.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("There's no field '" + name + "' in header");
+        }
+        return column;
+    }
+
+    private void tokenize(int column) {
+        while (tokenized <= column) {
+            int start = tokenized == 0 ? 0 : ends[tokenized - 1] + separator.length();
+            if (start > line.length()) {
+                throw new IllegalStateException("Too few fields in line (" + tokenized + "). It should be equal to fields in object (" + fields.size() + "). Line: '" + line + "'");
+            }
+            int end = line.indexOf(separator, start);
+            starts[tokenized] = start;
+            ends[tokenized] = end < 0 ? line.length() : end;
+            tokenized++;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return line;
+    }
+}
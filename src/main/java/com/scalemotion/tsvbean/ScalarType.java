@@ -10,7 +10,7 @@ import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.Map;
 
-public final class ScalarType<T> implements ClassAware, DataType<T>, BinaryType<T> {
+public final class ScalarType<T> implements ClassAware, DataType<T>, BinaryType<T>, ByteDataType<T> {
     private static Map<Class, String> binaryMethodPrefix = new HashMap<Class, String>();
     static {
         binaryMethodPrefix.put(Long.class, "Long");
@@ -25,6 +25,7 @@ public final class ScalarType<T> implements ClassAware, DataType<T>, BinaryType<
     private Class<T> scalarClass;
     private Method method;
     private T nullValue = null;
+    private boolean integral;
     private Method binaryReadMethod;
     private Method binaryWriteMethod;
 
@@ -51,11 +52,51 @@ public final class ScalarType<T> implements ClassAware, DataType<T>, BinaryType<
         }
     }
 
+    /**
+     * Parses UTF-8 bytes. Integral numbers are parsed straight from ASCII digits, strings are decoded
+     * with validation, anything else falls back to {@link #parse(String)}
+     */
+    @Override
+    public T parse(byte[] bytes, int start, int end) {
+        if (method == null) {
+            return (T) Utf8.decode(bytes, start, end);
+        }
+        if (Utf8.isNull(bytes, start, end)) {
+            return nullValue;
+        }
+        if (integral) {
+            long v = Utf8.parseLong(bytes, start, end);
+            if (v != Utf8.NOT_A_NUMBER) {
+                if (scalarClass == Long.class) {
+                    return (T) Long.valueOf(v);
+                } else if (scalarClass == Integer.class && v == (int) v) {
+                    return (T) Integer.valueOf((int) v);
+                } else if (scalarClass == Short.class && v == (short) v) {
+                    return (T) Short.valueOf((short) v);
+                } else if (scalarClass == Byte.class && v == (byte) v) {
+                    return (T) Byte.valueOf((byte) v);
+                }
+            }
+        }
+        return parse(Utf8.decode(bytes, start, end));
+    }
+
     @Override
     public String toString(T object) {
         return object == null ? "null" : object.toString();
     }
 
+    @Override
+    public void write(T object, ByteBuilder out) {
+        if (object == null) {
+            out.append(Utf8.NULL);
+        } else if (integral) {
+            out.append(((Number) object).longValue());
+        } else {
+            out.append(object.toString());
+        }
+    }
+
     @Override
     public String describe() {
         return scalarClass.getSimpleName();
@@ -81,6 +122,7 @@ public final class ScalarType<T> implements ClassAware, DataType<T>, BinaryType<
             }
         }
         scalarClass = cls;
+        integral = cls == Long.class || cls == Integer.class || cls == Short.class || cls == Byte.class;
         if (cls != String.class) {
             try {
                 method = scalarClass.getMethod("valueOf", new Class[]{String.class});
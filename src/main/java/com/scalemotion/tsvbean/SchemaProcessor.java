@@ -0,0 +1,665 @@
+package com.scalemotion.tsvbean;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Annotation processor generating {@link GeneratedSchema} of every class having {@link Field} or
+ * {@link EmbeddedDataField} fields. Generated schema creates and configures data types and reads and writes fields
+ * with plain java code, so {@link BeanSerializer} of such class doesn't reflect over fields, doesn't instantiate
+ * data types reflectively and doesn't call <code>setAccessible</code>.
+ * <p/>
+ * Generated code lives in the package of the bean, so all fields on the way (including embedded ones) should be
+ * accessible from there: either visible (not private) or having visible accessors <code>getX()</code>
+ * (<code>isX()</code> for boolean) and <code>setX(x)</code>. Fields should not be final or static, embedded beans
+ * should have visible no-arg constructor. Classes which don't comply are skipped with a warning and are still
+ * served by reflection; compile with <code>-Atsvbean.quiet=true</code> to suppress the warning.
+ * <p/>
+ * Processor is registered in <code>META-INF/services</code>, so it's enough to have the library on compile classpath.
+ */
+@SupportedAnnotationTypes({"com.scalemotion.tsvbean.Field", "com.scalemotion.tsvbean.EmbeddedDataField"})
+@SupportedOptions(SchemaProcessor.QUIET)
+public class SchemaProcessor extends AbstractProcessor {
+    static final String QUIET = "tsvbean.quiet";
+    private static final String FIELD = Field.class.getName();
+    private static final String EMBEDDED = EmbeddedDataField.class.getName();
+    private static final String KEY = KeyField.class.getName();
+    //fields which are accessed through getter and setter -> names of getter and setter
+    private final Map<VariableElement, String[]> accessors = new HashMap<VariableElement, String[]>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> beans = new LinkedHashSet<TypeElement>();
+        for (TypeElement annotation : annotations) {
+            for (Element e : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (e.getKind() == ElementKind.FIELD && e.getEnclosingElement() instanceof TypeElement) {
+                    beans.add((TypeElement) e.getEnclosingElement());
+                }
+            }
+        }
+        for (TypeElement bean : beans) {
+            try {
+                generate(bean);
+            } catch (SkipException e) {
+                if (!Boolean.parseBoolean(processingEnv.getOptions().get(QUIET))) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                            "Schema of " + bean.getQualifiedName() + " is not generated, reflection will be used: " + e.getMessage(), bean);
+                }
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Can't write schema of " + bean.getQualifiedName() + ": " + e.getMessage(), bean);
+            }
+        }
+        return false;
+    }
+
+    private void generate(TypeElement bean) throws SkipException, IOException {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(bean);
+        if (bean.getKind() != ElementKind.CLASS || bean.getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new SkipException("not a concrete class");
+        }
+        checkConstructible(bean, pkg);
+        List<Leaf> leaves = new ArrayList<Leaf>();
+        listFields(bean, "", new ArrayList<VariableElement>(), leaves, pkg);
+        Set<String> names = new HashSet<String>();
+        for (Leaf leaf : leaves) {
+            if (!names.add(leaf.name)) {
+                throw new SkipException("field with name '" + leaf.name + "' is registered twice");
+            }
+        }
+        String binaryName = processingEnv.getElementUtils().getBinaryName(bean).toString();
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + GeneratedSchema.SUFFIX;
+        String beanName = typeName(bean.asType());
+        Nodes nodes = new Nodes(bean, leaves);
+        StringBuilder out = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        out.append("/**\n * Generated by ").append(SchemaProcessor.class.getName()).append(" from ").append(beanName).append("\n */\n");
+        out.append("@SuppressWarnings(\"unchecked\")\n");
+        out.append("public final class ").append(simpleName).append(" extends ").append(GeneratedSchema.class.getName())
+                .append("<").append(beanName).append("> {\n");
+        out.append("    public ").append(simpleName).append("() {\n");
+        for (int i = 0; i < leaves.size(); i++) {
+            Leaf leaf = leaves.get(i);
+            out.append("        add(").append(literal(leaf.name)).append(", configure(new ").append(leaf.type).append("(), ")
+                    .append(leaf.fieldClass).append(".class");
+            for (String arg : leaf.args) {
+                out.append(", ").append(literal(arg));
+            }
+            out.append("), ").append(leaf.key).append(", new Accessor(").append(i).append("));\n");
+        }
+        out.append("    }\n\n");
+        out.append("    @Override\n");
+        out.append("    public ").append(beanName).append(" newInstance() {\n");
+        out.append("        return new ").append(beanName).append("();\n");
+        out.append("    }\n\n");
+        appendParse(out, beanName, nodes, leaves, false);
+        appendParse(out, beanName, nodes, leaves, true);
+        appendFormat(out, beanName, nodes, leaves, false);
+        appendFormat(out, beanName, nodes, leaves, true);
+        out.append("    @Override\n");
+        out.append("    protected void setValues(").append(beanName).append(" o0, Object[] values) {\n");
+        nodes.appendCreate(out);
+        for (int i = 0; i < leaves.size(); i++) {
+            out.append("        ").append(nodes.assignLeaf(leaves.get(i), "values[" + i + "]")).append(";\n");
+        }
+        out.append("    }\n\n");
+        out.append("    @Override\n");
+        out.append("    protected Object[] getValues(").append(beanName).append(" o0) {\n");
+        nodes.appendRead(out);
+        out.append("        Object[] values = new Object[").append(leaves.size()).append("];\n");
+        for (int i = 0; i < leaves.size(); i++) {
+            out.append("        values[").append(i).append("] = ").append(nodes.readLeaf(leaves.get(i))).append(";\n");
+        }
+        out.append("        return values;\n");
+        out.append("    }\n\n");
+        //single accessor class dispatching by index keeps number of classes to load independent of number of fields
+        out.append("    private static final class Accessor implements ").append(FieldAccessor.class.getName()).append(" {\n");
+        out.append("        private final int index;\n\n");
+        out.append("        Accessor(int index) {\n");
+        out.append("            this.index = index;\n");
+        out.append("        }\n\n");
+        out.append("        public Object get(Object bean) {\n");
+        out.append("            switch (index) {\n");
+        for (int i = 0; i < leaves.size(); i++) {
+            appendGet(out, i, bean, beanName, leaves.get(i).chain);
+        }
+        out.append("                default:\n");
+        out.append("                    throw new IllegalStateException(\"No field #\" + index);\n");
+        out.append("            }\n");
+        out.append("        }\n\n");
+        out.append("        public void set(Object bean, Object value) {\n");
+        out.append("            switch (index) {\n");
+        for (int i = 0; i < leaves.size(); i++) {
+            appendSet(out, i, bean, beanName, leaves.get(i).chain);
+        }
+        out.append("                default:\n");
+        out.append("                    throw new IllegalStateException(\"No field #\" + index);\n");
+        out.append("            }\n");
+        out.append("        }\n");
+        out.append("    }\n");
+        out.append("}\n");
+        String qualified = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        Writer writer = processingEnv.getFiler().createSourceFile(qualified, bean).openWriter();
+        try {
+            writer.write(out.toString());
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Appends parse of line from string or from bytes: fields are tokenized, parsed and set one by one
+     */
+    private void appendParse(StringBuilder out, String beanName, Nodes nodes, List<Leaf> leaves, boolean bytes) {
+        int n = leaves.size();
+        String line = bytes ? "bytes, start, end" : "line";
+        out.append("    @Override\n");
+        if (bytes) {
+            out.append("    protected ").append(beanName).append(" parse(byte[] bytes, int start, int end, byte[] separator) {\n");
+        } else {
+            out.append("    protected ").append(beanName).append(" parse(String line, String separator) {\n");
+        }
+        if (n == 0) {
+            out.append("        throw exceeded(0, ").append(line).append(");\n");
+            out.append("    }\n\n");
+            return;
+        }
+        out.append("        ").append(beanName).append(" o0 = new ").append(beanName).append("();\n");
+        nodes.appendCreate(out);
+        String end = bytes ? "end" : "line.length()";
+        out.append("        int from = ").append(bytes ? "start" : "0").append(";\n");
+        out.append("        int to;\n");
+        for (int i = 0; i < n; i++) {
+            out.append("        to = ").append(bytes ? "next(bytes, separator, from, end)" : "next(line, separator, from)").append(";\n");
+            String value = bytes ? "parseField(" + i + ", bytes, from, to)" : "parseField(" + i + ", line.substring(from, to))";
+            out.append("        ").append(nodes.assignLeaf(leaves.get(i), value)).append(";\n");
+            if (i < n - 1) {
+                out.append("        if (to == ").append(end).append(") {\n");
+                out.append("            throw tooFew(").append(i + 1).append(", ").append(n).append(", ").append(line).append(");\n");
+                out.append("        }\n");
+                out.append("        from = to + separator.length").append(bytes ? "" : "()").append(";\n");
+            } else {
+                out.append("        if (to != ").append(end).append(") {\n");
+                out.append("            throw exceeded(").append(n).append(", ").append(line).append(");\n");
+                out.append("        }\n");
+            }
+        }
+        out.append("        return o0;\n");
+        out.append("    }\n\n");
+    }
+
+    /**
+     * Appends format of bean to string or to bytes
+     */
+    private void appendFormat(StringBuilder out, String beanName, Nodes nodes, List<Leaf> leaves, boolean bytes) {
+        out.append("    @Override\n");
+        if (bytes) {
+            out.append("    protected void write(").append(beanName).append(" o0, ").append(ByteBuilder.class.getName())
+                    .append(" out, byte[] separator) {\n");
+        } else {
+            out.append("    protected String toString(").append(beanName).append(" o0, String separator) {\n");
+        }
+        nodes.appendRead(out);
+        if (!bytes) {
+            out.append("        StringBuilder out = new StringBuilder();\n");
+        }
+        for (int i = 0; i < leaves.size(); i++) {
+            if (i != 0) {
+                out.append("        out.append(separator);\n");
+            }
+            if (bytes) {
+                out.append("        writeField(").append(i).append(", ").append(nodes.readLeaf(leaves.get(i))).append(", out);\n");
+            } else {
+                out.append("        out.append(formatField(").append(i).append(", ").append(nodes.readLeaf(leaves.get(i))).append("));\n");
+            }
+        }
+        if (!bytes) {
+            out.append("        return out.toString();\n");
+        }
+        out.append("    }\n\n");
+    }
+
+    private void appendGet(StringBuilder out, int index, TypeElement bean, String beanName, List<VariableElement> chain) {
+        out.append("                case ").append(index).append(": {\n");
+        out.append("                    ").append(beanName).append(" o0 = (").append(beanName).append(") bean;\n");
+        for (int i = 0; i < chain.size() - 1; i++) {
+            VariableElement f = chain.get(i);
+            String type = typeName(f.asType());
+            out.append("                    ").append(type).append(" o").append(i + 1).append(" = ").append(read(bean, chain, i, "o" + i)).append(";\n");
+            out.append("                    if (o").append(i + 1).append(" == null) {\n");
+            out.append("                        return null;\n");
+            out.append("                    }\n");
+        }
+        out.append("                    return ").append(read(bean, chain, chain.size() - 1, "o" + (chain.size() - 1))).append(";\n");
+        out.append("                }\n");
+    }
+
+    private void appendSet(StringBuilder out, int index, TypeElement bean, String beanName, List<VariableElement> chain) {
+        out.append("                case ").append(index).append(": {\n");
+        out.append("                    ").append(beanName).append(" o0 = (").append(beanName).append(") bean;\n");
+        for (int i = 0; i < chain.size() - 1; i++) {
+            VariableElement f = chain.get(i);
+            String type = typeName(f.asType());
+            out.append("                    ").append(type).append(" o").append(i + 1).append(" = ").append(read(bean, chain, i, "o" + i)).append(";\n");
+            out.append("                    if (o").append(i + 1).append(" == null) {\n");
+            out.append("                        o").append(i + 1).append(" = new ").append(type).append("();\n");
+            out.append("                        ").append(assign(bean, chain, i, "o" + i, "o" + (i + 1))).append(";\n");
+            out.append("                    }\n");
+        }
+        VariableElement leaf = chain.get(chain.size() - 1);
+        if (leaf.asType().getKind().isPrimitive()) {
+            out.append("                    if (value == null) {\n");
+            out.append("                        throw new IllegalStateException(\"Can't set null to primitive field ")
+                    .append(leaf.getSimpleName()).append("\");\n");
+            out.append("                    }\n");
+        }
+        out.append("                    ").append(assign(bean, chain, chain.size() - 1, "o" + (chain.size() - 1),
+                "(" + castType(leaf) + ") value")).append(";\n");
+        out.append("                    return;\n");
+        out.append("                }\n");
+    }
+
+    /**
+     * @return type values of field are cast to before assignment: the field type or its boxed type for primitives
+     */
+    private String castType(VariableElement f) {
+        TypeMirror type = f.asType();
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        }
+        return typeName(type);
+    }
+
+    /**
+     * @return expression reading field at position i of chain from variable holding its owner
+     */
+    private String read(TypeElement bean, List<VariableElement> chain, int i, String owner) {
+        VariableElement f = chain.get(i);
+        String[] methods = accessors.get(f);
+        return receiver(bean, chain, i, owner) + "." + (methods == null ? f.getSimpleName().toString() : methods[0] + "()");
+    }
+
+    /**
+     * @return statement setting value to field at position i of chain of variable holding its owner
+     */
+    private String assign(TypeElement bean, List<VariableElement> chain, int i, String owner, String value) {
+        VariableElement f = chain.get(i);
+        String[] methods = accessors.get(f);
+        String receiver = receiver(bean, chain, i, owner);
+        return methods == null ? receiver + "." + f.getSimpleName() + " = " + value : receiver + "." + methods[1] + "(" + value + ")";
+    }
+
+    private String receiver(TypeElement bean, List<VariableElement> chain, int i, String owner) {
+        TypeElement declaring = (TypeElement) chain.get(i).getEnclosingElement();
+        Element ownerType = i == 0 ? bean : processingEnv.getTypeUtils().asElement(chain.get(i - 1).asType());
+        if (!declaring.equals(ownerType)) {
+            //field of superclass might be hidden by field with the same name
+            return "((" + typeName(declaring.asType()) + ") " + owner + ")";
+        }
+        return owner;
+    }
+
+    /**
+     * Embedded beans of the bean. Every embedded bean gets a local variable, so it's read or created once
+     * per row by generated parse and format code
+     */
+    private class Nodes {
+        private final TypeElement bean;
+        //chain of embedded fields -> variable
+        private final Map<List<VariableElement>, String> vars = new LinkedHashMap<List<VariableElement>, String>();
+
+        private Nodes(TypeElement bean, List<Leaf> leaves) {
+            this.bean = bean;
+            for (Leaf leaf : leaves) {
+                //parents are registered before children
+                for (int i = 1; i < leaf.chain.size(); i++) {
+                    List<VariableElement> path = leaf.chain.subList(0, i);
+                    if (!vars.containsKey(path)) {
+                        vars.put(new ArrayList<VariableElement>(path), "n" + (vars.size() + 1));
+                    }
+                }
+            }
+        }
+
+        private String var(List<VariableElement> path) {
+            return path.isEmpty() ? "o0" : vars.get(path);
+        }
+
+        /**
+         * Appends declarations of embedded beans, missing ones are created
+         */
+        private void appendCreate(StringBuilder out) {
+            for (Map.Entry<List<VariableElement>, String> e : vars.entrySet()) {
+                List<VariableElement> path = e.getKey();
+                int last = path.size() - 1;
+                String parent = var(path.subList(0, last));
+                String type = typeName(path.get(last).asType());
+                out.append("        ").append(type).append(" ").append(e.getValue()).append(" = ").append(read(bean, path, last, parent)).append(";\n");
+                out.append("        if (").append(e.getValue()).append(" == null) {\n");
+                out.append("            ").append(e.getValue()).append(" = new ").append(type).append("();\n");
+                out.append("            ").append(assign(bean, path, last, parent, e.getValue())).append(";\n");
+                out.append("        }\n");
+            }
+        }
+
+        /**
+         * Appends declarations of embedded beans, variable is null if embedded bean or some of its parents is null
+         */
+        private void appendRead(StringBuilder out) {
+            for (Map.Entry<List<VariableElement>, String> e : vars.entrySet()) {
+                List<VariableElement> path = e.getKey();
+                int last = path.size() - 1;
+                String parent = var(path.subList(0, last));
+                out.append("        ").append(typeName(path.get(last).asType())).append(" ").append(e.getValue()).append(" = ");
+                if (last != 0) {
+                    out.append(parent).append(" == null ? null : ");
+                }
+                out.append(read(bean, path, last, parent)).append(";\n");
+            }
+        }
+
+        /**
+         * @return statement setting value to leaf, embedded beans should be created with {@link #appendCreate(StringBuilder)}
+         */
+        private String assignLeaf(Leaf leaf, String value) {
+            int last = leaf.chain.size() - 1;
+            VariableElement f = leaf.chain.get(last);
+            String cast = f.asType().getKind().isPrimitive()
+                    ? "(" + castType(f) + ") notNull(" + value + ", " + literal(f.getSimpleName().toString()) + ")"
+                    : "(" + castType(f) + ") " + value;
+            return assign(bean, leaf.chain, last, var(leaf.chain.subList(0, last)), cast);
+        }
+
+        /**
+         * @return expression reading leaf value, null if its embedded bean is null
+         */
+        private String readLeaf(Leaf leaf) {
+            int last = leaf.chain.size() - 1;
+            String owner = var(leaf.chain.subList(0, last));
+            String value = read(bean, leaf.chain, last, owner);
+            if (last == 0) {
+                return value;
+            }
+            return "(" + owner + " == null ? null : " + value + ")";
+        }
+    }
+
+    private void listFields(TypeElement type, String prefix, List<VariableElement> chain, List<Leaf> res, PackageElement pkg) throws SkipException {
+        TypeElement current = type;
+        while (current != null) {
+            for (VariableElement f : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                AnnotationMirror field = mirror(f, FIELD);
+                AnnotationMirror embedded = mirror(f, EMBEDDED);
+                if (field == null && embedded == null) {
+                    continue;
+                }
+                checkField(f, pkg);
+                List<VariableElement> newChain = new ArrayList<VariableElement>(chain);
+                newChain.add(f);
+                if (field != null) {
+                    res.add(leaf(f, field, prefix, newChain, pkg));
+                }
+                if (embedded != null) {
+                    TypeMirror fieldType = f.asType();
+                    if (fieldType.getKind() != TypeKind.DECLARED) {
+                        throw new SkipException("embedded field " + f.getSimpleName() + " is not a class");
+                    }
+                    TypeElement embeddedType = (TypeElement) ((DeclaredType) fieldType).asElement();
+                    for (VariableElement c : chain) {
+                        if (processingEnv.getTypeUtils().isSameType(c.asType(), fieldType)) {
+                            throw new SkipException("embedded field " + f.getSimpleName() + " is recursive");
+                        }
+                    }
+                    checkConstructible(embeddedType, pkg);
+                    String embeddedPrefix = (String) value(embedded, "fieldPrefix");
+                    if (embeddedPrefix == null || embeddedPrefix.equals(EmbeddedDataField.INHERIT_PREFIX)) {
+                        embeddedPrefix = f.getSimpleName() + "_";
+                    }
+                    listFields(embeddedType, prefix + embeddedPrefix, newChain, res, pkg);
+                }
+            }
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+    }
+
+    private Leaf leaf(VariableElement f, AnnotationMirror annotation, String prefix, List<VariableElement> chain, PackageElement pkg) throws SkipException {
+        Leaf leaf = new Leaf();
+        String name = (String) value(annotation, "name");
+        leaf.name = prefix + (name == null || name.isEmpty() ? f.getSimpleName().toString() : name);
+        leaf.chain = chain;
+        leaf.key = mirror(f, KEY) != null;
+        TypeMirror fieldType = f.asType();
+        if (fieldType.getKind() == TypeKind.TYPEVAR) {
+            throw new SkipException("field " + f.getSimpleName() + " has generic type");
+        }
+        checkType(fieldType, pkg);
+        leaf.fieldClass = typeName(fieldType);
+        //type() can't be read directly, Class values are available as mirrors only
+        TypeMirror dataType = (TypeMirror) value(annotation, "type");
+        if (dataType == null || isClass(dataType, DataType.class)) {
+            leaf.type = guessType(fieldType).getName();
+        } else {
+            TypeElement dataTypeElement = (TypeElement) processingEnv.getTypeUtils().asElement(dataType);
+            checkConstructible(dataTypeElement, pkg);
+            leaf.type = typeName(dataType);
+        }
+        leaf.args = new ArrayList<String>();
+        @SuppressWarnings("unchecked")
+        List<? extends AnnotationValue> args = (List<? extends AnnotationValue>) value(annotation, "args");
+        if (args != null) {
+            for (AnnotationValue arg : args) {
+                leaf.args.add((String) arg.getValue());
+            }
+        }
+        return leaf;
+    }
+
+    /**
+     * Compile time counterpart of {@link BeanSerializer#guessType(Class)}
+     */
+    private Class<? extends DataType> guessType(TypeMirror fieldType) {
+        if (fieldType.getKind() == TypeKind.DECLARED) {
+            TypeElement element = (TypeElement) ((DeclaredType) fieldType).asElement();
+            TypeMirror date = processingEnv.getElementUtils().getTypeElement(Date.class.getName()).asType();
+            if (processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(fieldType), date)) {
+                return DateTimeType.class;
+            } else if (element.getKind() == ElementKind.ENUM) {
+                return EnumType.class;
+            }
+        }
+        return ScalarType.class;
+    }
+
+    private void checkField(VariableElement f, PackageElement pkg) throws SkipException {
+        Set<Modifier> modifiers = f.getModifiers();
+        if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL)) {
+            throw new SkipException("field " + f.getSimpleName() + " is static or final");
+        }
+        TypeElement declaring = (TypeElement) f.getEnclosingElement();
+        checkType(declaring.asType(), pkg);
+        if (modifiers.contains(Modifier.PRIVATE) || !modifiers.contains(Modifier.PUBLIC) && !inPackage(declaring, pkg)) {
+            String[] methods = findAccessors(f, declaring, pkg);
+            if (methods == null) {
+                throw new SkipException("field " + f.getSimpleName() + " is not visible from " + pkg.getQualifiedName()
+                        + " and has no visible getter and setter");
+            }
+            accessors.put(f, methods);
+        }
+    }
+
+    /**
+     * @return names of visible getter and setter of field or null if there are no such methods
+     */
+    private String[] findAccessors(VariableElement f, TypeElement declaring, PackageElement pkg) {
+        String name = f.getSimpleName().toString();
+        String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        TypeMirror type = f.asType();
+        String getter = null;
+        String setter = null;
+        for (ExecutableElement m : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(declaring))) {
+            Set<Modifier> modifiers = m.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.PRIVATE)
+                    || !modifiers.contains(Modifier.PUBLIC) && !inPackage(m, pkg)) {
+                continue;
+            }
+            String method = m.getSimpleName().toString();
+            List<? extends VariableElement> params = m.getParameters();
+            if (params.isEmpty() && processingEnv.getTypeUtils().isSameType(m.getReturnType(), type)
+                    && (method.equals("get" + suffix) || method.equals("is" + suffix) && type.getKind() == TypeKind.BOOLEAN)) {
+                getter = method;
+            } else if (params.size() == 1 && method.equals("set" + suffix)
+                    && processingEnv.getTypeUtils().isSameType(params.get(0).asType(), type)) {
+                setter = method;
+            }
+        }
+        return getter == null || setter == null ? null : new String[]{getter, setter};
+    }
+
+    private void checkConstructible(TypeElement type, PackageElement pkg) throws SkipException {
+        checkType(type.asType(), pkg);
+        if (type.getModifiers().contains(Modifier.ABSTRACT)
+                || type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+            throw new SkipException(type.getQualifiedName() + " can't be instantiated");
+        }
+        for (ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (c.getParameters().isEmpty()) {
+                if (c.getModifiers().contains(Modifier.PRIVATE)
+                        || !c.getModifiers().contains(Modifier.PUBLIC) && !inPackage(type, pkg)) {
+                    throw new SkipException("no-arg constructor of " + type.getQualifiedName() + " is not visible");
+                }
+                return;
+            }
+        }
+        throw new SkipException(type.getQualifiedName() + " has no no-arg constructor");
+    }
+
+    /**
+     * Checks that type may be referenced from generated code
+     */
+    private void checkType(TypeMirror type, PackageElement pkg) throws SkipException {
+        if (type.getKind().isPrimitive()) {
+            return;
+        }
+        if (type.getKind() == TypeKind.ARRAY) {
+            checkType(((javax.lang.model.type.ArrayType) type).getComponentType(), pkg);
+            return;
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            throw new SkipException("type " + type + " can't be referenced");
+        }
+        Element e = ((DeclaredType) type).asElement();
+        while (e instanceof TypeElement) {
+            TypeElement t = (TypeElement) e;
+            if (t.getNestingKind() == NestingKind.LOCAL || t.getNestingKind() == NestingKind.ANONYMOUS
+                    || t.getModifiers().contains(Modifier.PRIVATE)
+                    || !t.getModifiers().contains(Modifier.PUBLIC) && !inPackage(t, pkg)) {
+                throw new SkipException("type " + t.getQualifiedName() + " is not visible from " + pkg.getQualifiedName());
+            }
+            e = e.getEnclosingElement();
+        }
+    }
+
+    private boolean inPackage(Element e, PackageElement pkg) {
+        return processingEnv.getElementUtils().getPackageOf(e).equals(pkg);
+    }
+
+    private boolean isClass(TypeMirror type, Class cls) {
+        TypeElement element = (TypeElement) processingEnv.getTypeUtils().asElement(type);
+        return element != null && element.getQualifiedName().contentEquals(cls.getName());
+    }
+
+    private String typeName(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private static AnnotationMirror mirror(Element e, String annotation) {
+        for (AnnotationMirror m : e.getAnnotationMirrors()) {
+            if (((TypeElement) m.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return explicitly specified value of annotation attribute or null
+     */
+    private static Object value(AnnotationMirror annotation, String attribute) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e : annotation.getElementValues().entrySet()) {
+            if (e.getKey().getSimpleName().contentEquals(attribute)) {
+                return e.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private static String literal(String s) {
+        StringBuilder res = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    res.append("\\\"");
+                    break;
+                case '\\':
+                    res.append("\\\\");
+                    break;
+                case '\n':
+                    res.append("\\n");
+                    break;
+                case '\r':
+                    res.append("\\r");
+                    break;
+                case '\t':
+                    res.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        res.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        res.append(c);
+                    }
+            }
+        }
+        return res.append('"').toString();
+    }
+
+    private static class Leaf {
+        private String name;
+        private List<VariableElement> chain;
+        private boolean key;
+        private String fieldClass;
+        private String type;
+        private List<String> args;
+    }
+
+    private static class SkipException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private SkipException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.scalemotion.tsvbean;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sorted index of beans by integral, date (millis) or floating point field for range queries. Keeps keys and
+ * bean positions in two primitive arrays sorted by key (12 bytes per bean). Beans with null key are not indexed.
+ * Floating point keys are stored as order preserving long codes, see {@link BeanIndexBuilder#toKey(Object, boolean)}.
+ * Immutable, built by {@link BeanIndexBuilder}.
+ *
+ * @param <T> type of bean
+ */
+public class SortedIndex<T> {
+    private final List<T> beans;
+    private final long[] keys;
+    private final int[] positions;
+    private final boolean floating;
+
+    SortedIndex(List<T> beans, long[] allKeys, boolean[] nulls, boolean floating) {
+        this.beans = beans;
+        this.floating = floating;
+        int count = 0;
+        for (int pos = 0; pos < beans.size(); pos++) {
+            if (!nulls[pos]) {
+                count++;
+            }
+        }
+        keys = new long[count];
+        positions = new int[count];
+        int i = 0;
+        for (int pos = 0; pos < beans.size(); pos++) {
+            if (!nulls[pos]) {
+                keys[i] = allKeys[pos];
+                positions[i++] = pos;
+            }
+        }
+        sort(0, count - 1);
+    }
+
+    /**
+     * Returns beans with keys in range. Bounds of floating point field are encoded keys, see
+     * {@link BeanIndexBuilder#toKey(Object, boolean)}; use {@link #range(Object, Object)} for values
+     * @param from lower bound, inclusive
+     * @param to upper bound, inclusive
+     * @return beans ordered by key
+     */
+    public List<T> range(long from, long to) {
+        List<T> res = new ArrayList<T>();
+        for (int i = lowerBound(from); i < keys.length && keys[i] <= to; i++) {
+            res.add(beans.get(positions[i]));
+        }
+        return res;
+    }
+
+    /**
+     * Returns beans with keys in range
+     * @param from lower bound (number or date), inclusive
+     * @param to upper bound (number or date), inclusive
+     * @return beans ordered by key
+     */
+    public List<T> range(Object from, Object to) {
+        return range(BeanIndexBuilder.toKey(from, floating), BeanIndexBuilder.toKey(to, floating));
+    }
+
+    /**
+     * Counts beans with keys in range. Bounds of floating point field are encoded keys
+     * @param from lower bound, inclusive
+     * @param to upper bound, inclusive
+     * @return number of beans
+     */
+    public int count(long from, long to) {
+        int start = lowerBound(from);
+        int end = to == Long.MAX_VALUE ? keys.length : lowerBound(to + 1);
+        return Math.max(0, end - start);
+    }
+
+    /**
+     * @return number of indexed beans
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @return index of the first key which is greater or equal to value
+     */
+    private int lowerBound(long value) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Sorts keys and positions by keys, ties are ordered by positions
+     */
+    private void sort(int lo, int hi) {
+        while (lo < hi) {
+            if (hi - lo < 16) {
+                for (int i = lo + 1; i <= hi; i++) {
+                    for (int j = i; j > lo && less(j, j - 1); j--) {
+                        swap(j, j - 1);
+                    }
+                }
+                return;
+            }
+            swap((lo + hi) >>> 1, hi);
+            int store = lo;
+            for (int i = lo; i < hi; i++) {
+                if (less(i, hi)) {
+                    swap(i, store++);
+                }
+            }
+            swap(store, hi);
+            //recurse into smaller part to keep stack depth logarithmic
+            if (store - lo < hi - store) {
+                sort(lo, store - 1);
+                lo = store + 1;
+            } else {
+                sort(store + 1, hi);
+                hi = store - 1;
+            }
+        }
+    }
+
+    private boolean less(int a, int b) {
+        return keys[a] < keys[b] || (keys[a] == keys[b] && positions[a] < positions[b]);
+    }
+
+    private void swap(int a, int b) {
+        long k = keys[a];
+        keys[a] = keys[b];
+        keys[b] = k;
+        int p = positions[a];
+        positions[a] = positions[b];
+        positions[b] = p;
+    }
+}
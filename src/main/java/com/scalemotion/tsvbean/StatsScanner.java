@@ -0,0 +1,196 @@
+package com.scalemotion.tsvbean;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Collects approximate statistics of a file in serializer format in a single pass: per column null rate,
+ * distinct count, min/max and histograms plus random sample of rows (see {@link TableStats}).
+ * <p/>
+ * File is split into byte ranges scanned in parallel by at most one task per processor; each range owns lines
+ * which start in it. Instead of full
+ * scan only a number of randomly placed ranges may be scanned (see {@link #setSampledRanges(int, long)}), then row
+ * count is extrapolated by file size.
+ *
+ * @param <T> type of bean
+ */
+public class StatsScanner<T> {
+    private final BeanSerializer<T> serializer;
+    private int precision = HyperLogLog.DEFAULT_PRECISION;
+    private int rowsSampleSize = 1000;
+    private int valuesSampleSize = 10000;
+    private long rangeSize = 64L * 1024 * 1024;
+    private int sampledRanges = 0;
+    private boolean headerLine = false;
+    private final Random random = new Random();
+
+    public StatsScanner(BeanSerializer<T> serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * @param precision precision of distinct counters, see {@link HyperLogLog}
+     */
+    public void setPrecision(int precision) {
+        this.precision = precision;
+    }
+
+    /**
+     * @param rowsSampleSize number of rows kept in sample
+     */
+    public void setRowsSampleSize(int rowsSampleSize) {
+        this.rowsSampleSize = rowsSampleSize;
+    }
+
+    /**
+     * @param valuesSampleSize number of values of each numeric column kept for histogram
+     */
+    public void setValuesSampleSize(int valuesSampleSize) {
+        this.valuesSampleSize = valuesSampleSize;
+    }
+
+    /**
+     * @param rangeSize size of byte range scanned by single task
+     */
+    public void setRangeSize(long rangeSize) {
+        this.rangeSize = rangeSize;
+    }
+
+    /**
+     * Scan only given number of randomly placed ranges instead of the whole file
+     * @param count number of ranges, 0 means full scan
+     * @param rangeSize size of each range in bytes
+     */
+    public void setSampledRanges(int count, long rangeSize) {
+        this.sampledRanges = count;
+        this.rangeSize = rangeSize;
+    }
+
+    /**
+     * @param headerLine whether first line of file is header and should be skipped
+     */
+    public void setHeaderLine(boolean headerLine) {
+        this.headerLine = headerLine;
+    }
+
+    /**
+     * Collects statistics of lines in current thread
+     * @param lines lines
+     * @return statistics
+     */
+    public TableStats scan(Iterable<String> lines) {
+        TableStats stats = newStats();
+        for (String line : lines) {
+            stats.addLine(line);
+        }
+        return stats;
+    }
+
+    /**
+     * Collects statistics of file
+     * @param file file
+     * @param executor executor which scans ranges
+     * @return statistics
+     * @throws IOException if file can't be read
+     */
+    public TableStats scan(final File file, ExecutorService executor) throws IOException {
+        long length = file.length();
+        List<long[]> ranges = sampledRanges > 0 && sampledRanges * rangeSize < length ? sampleRanges(length) : splitRanges(length);
+        //every task scans ranges from the queue into its own stats, so there are sketches per task, not per range
+        final Queue<long[]> queue = new ConcurrentLinkedQueue<long[]>(ranges);
+        int tasks = Math.min(ranges.size(), Runtime.getRuntime().availableProcessors());
+        List<Future<TableStats>> futures = new ArrayList<Future<TableStats>>();
+        for (int i = 0; i < tasks; i++) {
+            futures.add(executor.submit(new Callable<TableStats>() {
+                @Override
+                public TableStats call() throws IOException {
+                    TableStats stats = newStats();
+                    long[] range;
+                    while ((range = queue.poll()) != null) {
+                        scanRange(file, range[0], range[1], stats);
+                    }
+                    return stats;
+                }
+            }));
+        }
+        TableStats result = newStats();
+        result.setTotalBytes(length);
+        try {
+            for (Future<TableStats> f : futures) {
+                result.merge(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Scan of " + file + " was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            for (Future<TableStats> f : futures) {
+                f.cancel(true);
+            }
+        }
+        return result;
+    }
+
+    private List<long[]> splitRanges(long length) {
+        List<long[]> ranges = new ArrayList<long[]>();
+        for (long start = 0; start < length; start += rangeSize) {
+            ranges.add(new long[]{start, Math.min(length, start + rangeSize)});
+        }
+        return ranges;
+    }
+
+    private List<long[]> sampleRanges(long length) {
+        long[] starts = new long[sampledRanges];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = (long) (random.nextDouble() * (length - rangeSize));
+        }
+        Arrays.sort(starts);
+        List<long[]> ranges = new ArrayList<long[]>();
+        for (long start : starts) {
+            long[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && start <= last[1]) {
+                //overlapping ranges are joined so lines are not counted twice
+                last[1] = start + rangeSize;
+            } else {
+                ranges.add(new long[]{start, start + rangeSize});
+            }
+        }
+        return ranges;
+    }
+
+    private void scanRange(File file, long start, long end, TableStats stats) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            long from = Math.max(0, start - 1);
+            in.getChannel().position(from);
+            LineReader reader = new LineReader(in, from);
+            if (start > 0 || headerLine) {
+                //line which contains byte before range start belongs to previous range
+                reader.skipLine();
+            }
+            long first = reader.getPosition();
+            String line;
+            while (reader.getPosition() < end && (line = reader.readLine()) != null) {
+                stats.addLine(line);
+            }
+            stats.addBytesScanned(Math.max(0, reader.getPosition() - first));
+        } finally {
+            in.close();
+        }
+    }
+
+    private TableStats newStats() {
+        return new TableStats(serializer, precision, valuesSampleSize, rowsSampleSize, new Random(random.nextLong()));
+    }
+}
@@ -0,0 +1,148 @@
+package com.scalemotion.tsvbean;
+
+import java.util.*;
+
+/**
+ * Statistics of a file collected by {@link StatsScanner}: number of rows, per column statistics
+ * and random sample of rows. Rows which can't be parsed are counted as errors and excluded from statistics.
+ */
+public class TableStats {
+    private final List<BeanSerializer.FieldInfo> fields;
+    private final String separator;
+    private final ColumnStats[] columns;
+    private final Reservoir<String> rows;
+    //buffers reused between rows
+    private final Object[] values;
+    private final int[] starts;
+    private final int[] ends;
+    private long rowCount = 0;
+    private long errors = 0;
+    private long bytesScanned = 0;
+    private long totalBytes = 0;
+
+    TableStats(BeanSerializer<?> serializer, int precision, int valuesSampleSize, int rowsSampleSize, Random random) {
+        this.fields = serializer.getFieldList();
+        this.separator = serializer.getSeparator();
+        this.columns = new ColumnStats[fields.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new ColumnStats(fields.get(i).getName(), precision, valuesSampleSize, random);
+        }
+        this.rows = new Reservoir<String>(rowsSampleSize, random);
+        this.values = new Object[fields.size()];
+        this.starts = new int[fields.size()];
+        this.ends = new int[fields.size()];
+    }
+
+    void addLine(String line) {
+        if (!parse(line)) {
+            errors++;
+            return;
+        }
+        rowCount++;
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].add(line, starts[i], ends[i], values[i]);
+            values[i] = null;
+        }
+        rows.add(line);
+    }
+
+    private boolean parse(String line) {
+        int start = 0;
+        int i = 0;
+        while (true) {
+            int end = line.indexOf(separator, start);
+            if (end < 0) {
+                end = line.length();
+            }
+            if (i == columns.length) {
+                return false;
+            }
+            try {
+                values[i] = fields.get(i).getType().parse(line.substring(start, end));
+            } catch (RuntimeException e) {
+                return false;
+            }
+            starts[i] = start;
+            ends[i] = end;
+            i++;
+            if (end == line.length()) {
+                break;
+            }
+            start = end + separator.length();
+        }
+        return i == columns.length;
+    }
+
+    void addBytesScanned(long bytes) {
+        bytesScanned += bytes;
+    }
+
+    void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    void merge(TableStats other) {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].merge(other.columns[i]);
+        }
+        rows.merge(other.rows);
+        rowCount += other.rowCount;
+        errors += other.errors;
+        bytesScanned += other.bytesScanned;
+    }
+
+    /**
+     * @return statistics of columns in header order
+     */
+    public List<ColumnStats> getColumns() {
+        return Collections.unmodifiableList(Arrays.asList(columns));
+    }
+
+    /**
+     * @param name field name
+     * @return statistics of column
+     */
+    public ColumnStats getColumn(String name) {
+        for (ColumnStats c : columns) {
+            if (c.getName().equals(name)) {
+                return c;
+            }
+        }
+        throw new IllegalArgumentException("There's no field '" + name + "' in header");
+    }
+
+    /**
+     * @return number of scanned rows, not including errors
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return estimated number of rows in the whole file (equals to {@link #getRowCount()} if file was fully scanned)
+     */
+    public long getEstimatedRowCount() {
+        if (bytesScanned == 0 || totalBytes <= bytesScanned) {
+            return rowCount;
+        }
+        return Math.round((double) rowCount * totalBytes / bytesScanned);
+    }
+
+    /**
+     * @return number of rows which couldn't be parsed
+     */
+    public long getErrorCount() {
+        return errors;
+    }
+
+    public long getBytesScanned() {
+        return bytesScanned;
+    }
+
+    /**
+     * @return random sample of scanned rows
+     */
+    public List<String> getSampleRows() {
+        return rows.getItems();
+    }
+}
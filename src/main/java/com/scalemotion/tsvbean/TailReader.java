@@ -0,0 +1,230 @@
+package com.scalemotion.tsvbean;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows file which is continuously appended and returns newly appended lines as beans in batches.
+ * Reader remembers byte offset of the first line which wasn't returned yet; a line is returned only when it
+ * is complete (terminated with '\n'), so partially written last line is picked up by one of the next polls.
+ * If file becomes shorter than the offset it is considered truncated and is read from the beginning.
+ * <p/>
+ * Offset may be stored in a checkpoint file with {@link #commit()}; new reader of the same checkpoint continues
+ * from the committed offset. Checkpoint is written to a temporary file, synced to disk and renamed, so it's never
+ * left half written. On platforms where rename doesn't replace existing file the previous checkpoint is moved to
+ * <code>&lt;checkpoint&gt;.bak</code> first; if commit is interrupted before the new one is in place, reader starts
+ * from the backup (previously committed offset).
+ * <p/>
+ * Batch size limits number of returned beans, lines rejected by filter are skipped without limit.
+ * Offset advances only when poll returns. If a line can't be parsed, beans read before it are returned and
+ * the next poll fails on that line, unless bad lines are skipped with {@link #setBadLineHandler(BadLineHandler)}.
+ * <p/>
+ * Not thread safe.
+ *
+ * @param <T> type of bean
+ */
+public class TailReader<T> {
+    /**
+     * Receives lines which can't be parsed; such lines are skipped
+     */
+    public static interface BadLineHandler {
+        public void onBadLine(long offset, String line, RuntimeException e);
+    }
+
+    /**
+     * Skips bad lines silently
+     */
+    public static final BadLineHandler SKIP = new BadLineHandler() {
+        @Override
+        public void onBadLine(long offset, String line, RuntimeException e) {
+        }
+    };
+
+    private final BeanSerializer<T> serializer;
+    private final File file;
+    private final File checkpoint;
+    private RowFilter<T> filter;
+    private BadLineHandler badLineHandler;
+    private int batchSize = 1000;
+    private long pollInterval = 1000;
+    private long offset = 0;
+
+    /**
+     * Creates reader
+     * @param serializer serializer of lines
+     * @param file file to follow
+     * @param checkpoint checkpoint file, may be null. If it (or its backup) exists reader starts from the stored offset
+     * @throws IOException if checkpoint can't be read
+     */
+    public TailReader(BeanSerializer<T> serializer, File file, File checkpoint) throws IOException {
+        this.serializer = serializer;
+        this.file = file;
+        this.checkpoint = checkpoint;
+        if (checkpoint != null && checkpoint.exists()) {
+            offset = readCheckpoint(checkpoint);
+        } else if (checkpoint != null && backup(checkpoint).exists()) {
+            //commit was interrupted while replacing checkpoint
+            offset = readCheckpoint(backup(checkpoint));
+        }
+    }
+
+    /**
+     * @param batchSize maximum number of beans returned by single poll
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param pollInterval interval between checks of file in {@link #take(long, TimeUnit)}, in milliseconds
+     */
+    public void setPollInterval(long pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * @param filter filter applied to lines, rejected lines are skipped. May be null
+     */
+    public void setFilter(RowFilter<T> filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * @param badLineHandler handler of lines which can't be parsed, e.g. {@link #SKIP}. If null (default)
+     *                       poll fails on such line
+     */
+    public void setBadLineHandler(BadLineHandler badLineHandler) {
+        this.badLineHandler = badLineHandler;
+    }
+
+    /**
+     * @return offset of the first line which wasn't returned yet
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Reads complete lines appended since last poll
+     * @return beans, up to batch size. Empty list if there are no new complete lines
+     * @throws IOException if file can't be read
+     * @throws IllegalStateException if the first line to be returned can't be parsed and there's no bad line handler
+     */
+    public List<T> poll() throws IOException {
+        List<T> batch = new ArrayList<T>();
+        if (!file.exists()) {
+            return batch;
+        }
+        if (file.length() < offset) {
+            offset = 0;
+        }
+        FileInputStream in = new FileInputStream(file);
+        try {
+            in.getChannel().position(offset);
+            LineReader reader = new LineReader(in, offset);
+            long position = offset;
+            String line;
+            //only returned beans are counted, lines rejected by filter don't hold back the following ones
+            while (batch.size() < batchSize && (line = reader.readLine()) != null && reader.isTerminated()) {
+                T bean;
+                try {
+                    bean = serializer.parse(line, filter);
+                } catch (RuntimeException e) {
+                    if (badLineHandler != null) {
+                        badLineHandler.onBadLine(position, line, e);
+                        bean = null;
+                    } else if (!batch.isEmpty()) {
+                        //beans read so far are returned, the line fails again on the next poll
+                        break;
+                    } else {
+                        throw new IllegalStateException("Can't parse line at offset " + position + " of " + file + ": " + e.getMessage(), e);
+                    }
+                }
+                if (bean != null) {
+                    batch.add(bean);
+                }
+                position = reader.getPosition();
+            }
+            offset = position;
+        } finally {
+            in.close();
+        }
+        return batch;
+    }
+
+    /**
+     * Waits for new complete lines
+     * @param timeout maximum time to wait
+     * @param unit unit of timeout
+     * @return beans, up to batch size. Empty list if nothing was appended in time
+     * @throws IOException if file can't be read
+     * @throws InterruptedException if thread was interrupted
+     */
+    public List<T> take(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        while (true) {
+            long before = offset;
+            List<T> batch = poll();
+            long left = deadline - System.currentTimeMillis();
+            if (!batch.isEmpty() || left <= 0) {
+                return batch;
+            }
+            //lines were read but all of them were skipped, there may be more right away
+            if (offset == before) {
+                Thread.sleep(Math.min(pollInterval, left));
+            }
+        }
+    }
+
+    /**
+     * Stores current offset in checkpoint file
+     * @throws IOException if checkpoint can't be written
+     */
+    public void commit() throws IOException {
+        if (checkpoint == null) {
+            throw new IllegalStateException("Checkpoint file is not set");
+        }
+        File tmp = new File(checkpoint.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmp);
+        try {
+            out.write((offset + "\n").getBytes(LineReader.UTF8));
+            out.flush();
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(checkpoint)) {
+            //renameTo doesn't replace existing file on some platforms. Previous checkpoint is kept as backup until
+            //the new one is in place, so there's always a checkpoint to start from
+            File backup = backup(checkpoint);
+            backup.delete();
+            if (checkpoint.exists() && !checkpoint.renameTo(backup)) {
+                throw new IOException("Can't rename " + checkpoint + " to " + backup);
+            }
+            if (!tmp.renameTo(checkpoint)) {
+                throw new IOException("Can't rename " + tmp + " to " + checkpoint);
+            }
+            backup.delete();
+        }
+    }
+
+    private static File backup(File checkpoint) {
+        return new File(checkpoint.getPath() + ".bak");
+    }
+
+    private static long readCheckpoint(File checkpoint) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(checkpoint), LineReader.UTF8));
+        try {
+            String line = reader.readLine();
+            try {
+                return Long.parseLong(line == null ? "" : line.trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed checkpoint " + checkpoint + ": '" + line + "'");
+            }
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package com.scalemotion.tsvbean;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Converts streams between three formats of the same schema (fields of serializer in order of its header):
+ * <ul>
+ * <li>{@link Format#TSV}: UTF-8 lines of {@link BeanSerializer}</li>
+ * <li>{@link Format#BINARY}: records framed with int length. Every field is written as null marker byte
+ * (0 - null, 1 - value follows) and value written by its {@link BinaryType}; strings and fields of other types are
+ * written as length-prefixed UTF-8 text, see {@link BinaryRecords}</li>
+ * <li>{@link Format#COLUMNAR}: batches of records. Batch starts with int number of records followed by columns;
+ * every column is int length in bytes followed by values of the column encoded the same way as in binary
+ * records, so readers may skip columns they don't need</li>
+ * </ul>
+ * Input is read in chunks of records by the calling thread. Chunks are decoded to values (no beans are created)
+ * and encoded to target format by executor, then written in original order. Number of chunks in flight is bounded,
+ * so memory use doesn't depend on input size. For columnar output every chunk is a batch. If both formats are the
+ * same, raw records are copied without decoding. Lengths read from binary and columnar input are checked, so corrupt
+ * input fails with {@link IOException} instead of huge allocations.
+ * <pre>
+ * new Transcoder&lt;Event&gt;(serializer, Transcoder.Format.TSV, Transcoder.Format.COLUMNAR).transcode(in, out, executor);
+ * </pre>
+ *
+ * @param <T> type of bean of schema
+ */
+public class Transcoder<T> {
+    public static enum Format {
+        TSV, BINARY, COLUMNAR
+    }
+
+    private final BeanSerializer<T> serializer;
+    private final List<BeanSerializer.FieldInfo> fields;
+    private final Format from;
+    private final Format to;
+    private int chunkSize = 10000;
+    private int maxChunksInFlight = 2 * Runtime.getRuntime().availableProcessors();
+    private boolean readHeader = false;
+    private boolean writeHeader = false;
+    //binary input reused by every worker thread for all records it decodes
+    private final ThreadLocal<RangeInputStream> binaryInput = new ThreadLocal<RangeInputStream>() {
+        @Override
+        protected RangeInputStream initialValue() {
+            return new RangeInputStream();
+        }
+    };
+
+    public Transcoder(BeanSerializer<T> serializer, Format from, Format to) {
+        this.serializer = serializer;
+        this.fields = new ArrayList<BeanSerializer.FieldInfo>(serializer.getFieldList());
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @param chunkSize number of records in chunk processed by one task
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param maxChunksInFlight number of chunks read but not yet written, bounds memory use
+     */
+    public void setMaxChunksInFlight(int maxChunksInFlight) {
+        this.maxChunksInFlight = maxChunksInFlight;
+    }
+
+    /**
+     * @param readHeader whether first line of TSV input is header and should be skipped
+     */
+    public void setReadHeader(boolean readHeader) {
+        this.readHeader = readHeader;
+    }
+
+    /**
+     * @param writeHeader whether header line should be written to TSV output
+     */
+    public void setWriteHeader(boolean writeHeader) {
+        this.writeHeader = writeHeader;
+    }
+
+    /**
+     * Transcodes input to output. Streams are not closed
+     * @param in input
+     * @param out output
+     * @param executor executor decoding and encoding chunks
+     * @return number of records
+     * @throws IOException if input can't be read or output can't be written
+     */
+    public long transcode(InputStream in, OutputStream out, ExecutorService executor) throws IOException {
+        ChunkReader reader = newReader(in);
+        if (to == Format.TSV && writeHeader) {
+            ByteBuilder header = new ByteBuilder();
+            String[] names = serializer.getHeader();
+            for (int i = 0; i < names.length; i++) {
+                if (i != 0) {
+                    header.append(serializer.getSeparator());
+                }
+                header.append(names[i]);
+            }
+            header.append((byte) '\n').writeTo(out);
+        }
+        ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<Future<Chunk>>();
+        long records = 0;
+        try {
+            while (true) {
+                final Chunk chunk = reader.read();
+                if (chunk == null) {
+                    break;
+                }
+                if (inFlight.size() == maxChunksInFlight) {
+                    records += write(inFlight.poll(), out);
+                }
+                inFlight.add(executor.submit(new Callable<Chunk>() {
+                    @Override
+                    public Chunk call() throws IOException {
+                        if (from == to) {
+                            copy(chunk);
+                        } else {
+                            encode(chunk, decode(chunk));
+                        }
+                        return chunk;
+                    }
+                }));
+            }
+            while (!inFlight.isEmpty()) {
+                records += write(inFlight.poll(), out);
+            }
+        } finally {
+            for (Future<Chunk> f : inFlight) {
+                f.cancel(true);
+            }
+        }
+        out.flush();
+        return records;
+    }
+
+    private static long write(Future<Chunk> future, OutputStream out) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Transcoding was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        }
+        chunk.output.writeTo(out);
+        return chunk.records;
+    }
+
+    private ChunkReader newReader(final InputStream in) throws IOException {
+        switch (from) {
+            case TSV:
+                final LineReader lines = new LineReader(in, 0);
+                if (readHeader) {
+                    lines.skipLine();
+                }
+                return new ChunkReader() {
+                    @Override
+                    public Chunk read() throws IOException {
+                        Chunk chunk = new Chunk(chunkSize);
+                        while (chunk.records < chunkSize) {
+                            int start = chunk.input.length();
+                            if (!lines.readLine(chunk.input)) {
+                                break;
+                            }
+                            chunk.add(start, chunk.input.length());
+                        }
+                        return chunk.records == 0 ? null : chunk;
+                    }
+                };
+            case BINARY:
+                final DataInputStream recordsIn = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+                return new ChunkReader() {
+                    //offset of the next record in input
+                    private long offset = 0;
+
+                    @Override
+                    public Chunk read() throws IOException {
+                        Chunk chunk = new Chunk(chunkSize);
+                        while (chunk.records < chunkSize) {
+                            long length = readLength(recordsIn);
+                            if (length < 0) {
+                                break;
+                            }
+                            if (length > BinaryRecords.MAX_LENGTH) {
+                                throw corrupt("record", offset, length);
+                            }
+                            int start = chunk.input.length();
+                            readFully(recordsIn, chunk.input, (int) length);
+                            chunk.add(start, start + (int) length);
+                            offset += 4 + length;
+                        }
+                        return chunk.records == 0 ? null : chunk;
+                    }
+                };
+            default:
+                final DataInputStream batches = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+                return new ChunkReader() {
+                    //offset of the next batch in input
+                    private long offset = 0;
+
+                    @Override
+                    public Chunk read() throws IOException {
+                        long count = readLength(batches);
+                        if (count < 0) {
+                            return null;
+                        }
+                        if (count > BinaryRecords.MAX_LENGTH) {
+                            throw corrupt("batch", offset, count);
+                        }
+                        Chunk chunk = new Chunk(fields.size());
+                        chunk.records = (int) count;
+                        long position = offset + 4;
+                        for (int c = 0; c < fields.size(); c++) {
+                            long length = batches.readInt() & 0xffffffffL;
+                            //every value takes at least null marker byte
+                            if (length > BinaryRecords.MAX_LENGTH || length < count) {
+                                throw corrupt("batch", offset, length);
+                            }
+                            int start = chunk.input.length();
+                            readFully(batches, chunk.input, (int) length);
+                            //ranges of columnar chunk are columns
+                            chunk.ranges[2 * c] = start;
+                            chunk.ranges[2 * c + 1] = start + (int) length;
+                            position += 4 + length;
+                        }
+                        offset = position;
+                        return chunk;
+                    }
+                };
+        }
+    }
+
+    /**
+     * @return unsigned int or -1 if stream ended before the first byte
+     */
+    private static long readLength(DataInputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            return -1;
+        }
+        return ((long) b << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+    }
+
+    private static IOException corrupt(String what, long offset, long length) {
+        return new IOException("Corrupt " + what + " at offset " + offset + ": bad length " + (int) length);
+    }
+
+    private static void readFully(DataInputStream in, ByteBuilder out, int length) throws IOException {
+        int start = out.length();
+        out.extend(length);
+        in.readFully(out.getBytes(), start, length);
+    }
+
+    /**
+     * @return values of chunk records
+     */
+    private Object[][] decode(Chunk chunk) throws IOException {
+        Object[][] rows = new Object[chunk.records][];
+        byte[] bytes = chunk.input.getBytes();
+        switch (from) {
+            case TSV:
+                for (int r = 0; r < rows.length; r++) {
+                    rows[r] = serializer.parseValues(fields, bytes, chunk.ranges[2 * r], chunk.ranges[2 * r + 1]);
+                }
+                break;
+            case BINARY:
+                RangeInputStream records = binaryInput.get();
+                for (int r = 0; r < rows.length; r++) {
+                    records.reset(bytes, chunk.ranges[2 * r], chunk.ranges[2 * r + 1]);
+                    rows[r] = BinaryRecords.readRecord(fields, records.data);
+                }
+                break;
+            default:
+                for (int r = 0; r < rows.length; r++) {
+                    rows[r] = new Object[fields.size()];
+                }
+                RangeInputStream columns = binaryInput.get();
+                for (int c = 0; c < fields.size(); c++) {
+                    columns.reset(bytes, chunk.ranges[2 * c], chunk.ranges[2 * c + 1]);
+                    DataInputStream in = columns.data;
+                    for (Object[] row : rows) {
+                        row[c] = BinaryRecords.readValue(fields.get(c), in);
+                    }
+                }
+        }
+        return rows;
+    }
+
+    /**
+     * Encodes values of chunk records to target format
+     */
+    private void encode(Chunk chunk, Object[][] rows) throws IOException {
+        ByteBuilder output = new ByteBuilder(chunk.input.length() + 16);
+        switch (to) {
+            case TSV:
+                for (Object[] row : rows) {
+                    serializer.writeValues(fields, row, output);
+                    output.append((byte) '\n');
+                }
+                break;
+            case BINARY:
+                DataOutputStream record = new DataOutputStream(new ByteBuilderStream(output));
+                for (Object[] row : rows) {
+                    int lengthPos = output.length();
+                    record.writeInt(0);
+                    BinaryRecords.writeRecord(fields, row, record);
+                    record.flush();
+                    setInt(output, lengthPos, output.length() - lengthPos - 4);
+                }
+                break;
+            default:
+                DataOutputStream column = new DataOutputStream(new ByteBuilderStream(output));
+                column.writeInt(rows.length);
+                for (int c = 0; c < fields.size(); c++) {
+                    int lengthPos = output.length();
+                    column.writeInt(0);
+                    for (Object[] row : rows) {
+                        BinaryRecords.writeValue(fields.get(c), row[c], column);
+                    }
+                    column.flush();
+                    setInt(output, lengthPos, output.length() - lengthPos - 4);
+                }
+        }
+        chunk.output = output;
+        //input is not needed anymore, free it while chunk waits to be written
+        chunk.input = null;
+        chunk.ranges = null;
+    }
+
+    /**
+     * Copies raw records of chunk to output of the same format
+     */
+    private void copy(Chunk chunk) throws IOException {
+        ByteBuilder output = new ByteBuilder(chunk.input.length() + 16);
+        byte[] bytes = chunk.input.getBytes();
+        switch (to) {
+            case TSV:
+                for (int r = 0; r < chunk.records; r++) {
+                    output.append(bytes, chunk.ranges[2 * r], chunk.ranges[2 * r + 1] - chunk.ranges[2 * r]);
+                    output.append((byte) '\n');
+                }
+                break;
+            case BINARY:
+                for (int r = 0; r < chunk.records; r++) {
+                    int length = chunk.ranges[2 * r + 1] - chunk.ranges[2 * r];
+                    int lengthPos = output.length();
+                    output.extend(4);
+                    setInt(output, lengthPos, length);
+                    output.append(bytes, chunk.ranges[2 * r], length);
+                }
+                break;
+            default:
+                output.extend(4);
+                setInt(output, 0, chunk.records);
+                for (int c = 0; c < fields.size(); c++) {
+                    int length = chunk.ranges[2 * c + 1] - chunk.ranges[2 * c];
+                    int lengthPos = output.length();
+                    output.extend(4);
+                    setInt(output, lengthPos, length);
+                    output.append(bytes, chunk.ranges[2 * c], length);
+                }
+        }
+        chunk.output = output;
+        chunk.input = null;
+        chunk.ranges = null;
+    }
+
+    private interface ChunkReader {
+        /**
+         * @return next chunk or null if input is over
+         */
+        Chunk read() throws IOException;
+    }
+
+    /**
+     * Raw input of chunk (records or columns, as [start, end) ranges in input bytes) and encoded output
+     */
+    private static class Chunk {
+        private ByteBuilder input = new ByteBuilder(64 * 1024);
+        private int[] ranges;
+        private int records = 0;
+        private ByteBuilder output;
+
+        private Chunk(int capacity) {
+            ranges = new int[2 * capacity];
+        }
+
+        private void add(int start, int end) {
+            ranges[2 * records] = start;
+            ranges[2 * records + 1] = end;
+            records++;
+        }
+    }
+
+    private static void setInt(ByteBuilder out, int pos, int value) {
+        byte[] b = out.getBytes();
+        b[pos] = (byte) (value >>> 24);
+        b[pos + 1] = (byte) (value >>> 16);
+        b[pos + 2] = (byte) (value >>> 8);
+        b[pos + 3] = (byte) value;
+    }
+
+    /**
+     * Stream over range of byte array which may be moved to another range, so one stream serves many records
+     */
+    private static class RangeInputStream extends InputStream {
+        private final DataInputStream data = new DataInputStream(this);
+        private byte[] bytes;
+        private int pos;
+        private int end;
+
+        private void reset(byte[] bytes, int start, int end) {
+            this.bytes = bytes;
+            this.pos = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() {
+            return pos < end ? bytes[pos++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos >= end) {
+                return -1;
+            }
+            int n = Math.min(len, end - pos);
+            System.arraycopy(bytes, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return end - pos;
+        }
+    }
+
+    private static class ByteBuilderStream extends OutputStream {
+        private final ByteBuilder out;
+
+        private ByteBuilderStream(ByteBuilder out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) {
+            out.append((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            out.append(b, off, len);
+        }
+    }
+
+    /**
+     * Transcodes file from command line:
+     * <code>Transcoder &lt;bean class&gt; &lt;tsv|binary|columnar&gt; &lt;tsv|binary|columnar&gt; &lt;input&gt; &lt;output&gt; [threads]</code>.
+     * Files with .gz extension are (un)compressed, "-" stands for stdin or stdout. TSV input is expected
+     * without header and TSV output is written without header.
+     */
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args) throws Exception {
+        if (args.length < 5) {
+            System.err.println("Usage: Transcoder <bean class> <tsv|binary|columnar> <tsv|binary|columnar> <input> <output> [threads]");
+            System.exit(1);
+        }
+        BeanSerializer serializer = new BeanSerializer(Class.forName(args[0]));
+        Transcoder transcoder = new Transcoder(serializer, Format.valueOf(args[1].toUpperCase()), Format.valueOf(args[2].toUpperCase()));
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        InputStream in = args[3].equals("-") ? System.in : new FileInputStream(args[3]);
+        OutputStream out = args[4].equals("-") ? System.out : new FileOutputStream(args[4]);
+        if (args[3].endsWith(".gz")) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        }
+        if (args[4].endsWith(".gz")) {
+            out = new GZIPOutputStream(out, 64 * 1024);
+        }
+        out = new BufferedOutputStream(out, 64 * 1024);
+        try {
+            long records = transcoder.transcode(in, out, executor);
+            System.err.println(records + " records transcoded");
+        } finally {
+            executor.shutdown();
+            in.close();
+            out.close();
+        }
+    }
+}
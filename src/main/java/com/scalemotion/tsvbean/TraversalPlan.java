@@ -0,0 +1,161 @@
+package com.scalemotion.tsvbean;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tree of reflected fields compiled from {@link EmbeddedDataField} hierarchy of the columns of serializer.
+ * Every node is an embedded bean with its leaf columns and embedded children, so an intermediate bean is fetched
+ * (or created) once per row instead of once per leaf, and leaves of a null embedded bean are skipped with
+ * a single check. Fields served by generated accessors ({@link GeneratedSchema}) are not planned.
+ * Immutable and thread safe
+ */
+final class TraversalPlan {
+    private final List<BeanSerializer.FieldInfo> fields;
+    private final Node root;
+
+    private TraversalPlan(List<BeanSerializer.FieldInfo> fields, Node root) {
+        this.fields = fields;
+        this.root = root;
+    }
+
+    /**
+     * @param fields fields in order of columns
+     * @return plan or null if some fields are not reflected
+     */
+    static TraversalPlan compile(List<BeanSerializer.FieldInfo> fields) {
+        Builder root = new Builder(null);
+        for (int column = 0; column < fields.size(); column++) {
+            List<java.lang.reflect.Field> chain = fields.get(column).getFieldChain();
+            if (chain == null) {
+                return null;
+            }
+            Builder node = root;
+            for (java.lang.reflect.Field f : chain.subList(0, chain.size() - 1)) {
+                Builder child = node.children.get(f);
+                if (child == null) {
+                    child = new Builder(f);
+                    node.children.put(f, child);
+                }
+                node = child;
+            }
+            node.leafFields.add(chain.get(chain.size() - 1));
+            node.leafColumns.add(column);
+        }
+        return new TraversalPlan(fields, root.build(""));
+    }
+
+    /**
+     * @return fields the plan was compiled for
+     */
+    List<BeanSerializer.FieldInfo> getFields() {
+        return fields;
+    }
+
+    /**
+     * Sets values to bean, creating missing embedded beans
+     * @param bean bean
+     * @param values values in order of columns
+     */
+    void set(Object bean, Object[] values) {
+        set(root, bean, values);
+    }
+
+    private static void set(Node node, Object bean, Object[] values) {
+        java.lang.reflect.Field f = null;
+        try {
+            for (int k = 0; k < node.leafFields.length; k++) {
+                f = node.leafFields[k];
+                f.set(bean, values[node.leafColumns[k]]);
+            }
+            for (Node child : node.children) {
+                f = child.field;
+                Object embedded = f.get(bean);
+                if (embedded == null) {
+                    embedded = BeanSerializer.newInstance(f.getType());
+                    f.set(bean, embedded);
+                }
+                set(child, embedded, values);
+            }
+        } catch (IllegalAccessException e) {
+            throw cantAccess(node, f, e);
+        }
+    }
+
+    /**
+     * Reads values of bean. Values of fields of null embedded beans are null
+     * @param bean bean
+     * @return values in order of columns
+     */
+    Object[] get(Object bean) {
+        Object[] values = new Object[fields.size()];
+        get(root, bean, values);
+        return values;
+    }
+
+    private static void get(Node node, Object bean, Object[] values) {
+        java.lang.reflect.Field f = null;
+        try {
+            for (int k = 0; k < node.leafFields.length; k++) {
+                f = node.leafFields[k];
+                values[node.leafColumns[k]] = f.get(bean);
+            }
+            for (Node child : node.children) {
+                f = child.field;
+                Object embedded = f.get(bean);
+                if (embedded != null) {
+                    get(child, embedded, values);
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw cantAccess(node, f, e);
+        }
+    }
+
+    private static IllegalStateException cantAccess(Node node, java.lang.reflect.Field f, IllegalAccessException e) {
+        return new IllegalStateException("Can't access field " + node.path + f.getName() + " of " + f.getDeclaringClass().getName() + ": " + e.getMessage(), e);
+    }
+
+    private static class Node {
+        private final java.lang.reflect.Field field;
+        //names of embedded fields leading to node, each followed by dot
+        private final String path;
+        private final java.lang.reflect.Field[] leafFields;
+        private final int[] leafColumns;
+        private final Node[] children;
+
+        private Node(java.lang.reflect.Field field, String path, java.lang.reflect.Field[] leafFields, int[] leafColumns, Node[] children) {
+            this.field = field;
+            this.path = path;
+            this.leafFields = leafFields;
+            this.leafColumns = leafColumns;
+            this.children = children;
+        }
+    }
+
+    private static class Builder {
+        private final java.lang.reflect.Field field;
+        private final List<java.lang.reflect.Field> leafFields = new ArrayList<java.lang.reflect.Field>();
+        private final List<Integer> leafColumns = new ArrayList<Integer>();
+        private final Map<java.lang.reflect.Field, Builder> children = new LinkedHashMap<java.lang.reflect.Field, Builder>();
+
+        private Builder(java.lang.reflect.Field field) {
+            this.field = field;
+        }
+
+        private Node build(String path) {
+            int[] columns = new int[leafColumns.size()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = leafColumns.get(i);
+            }
+            Node[] nodes = new Node[children.size()];
+            int i = 0;
+            for (Builder child : children.values()) {
+                nodes[i++] = child.build(path + child.field.getName() + ".");
+            }
+            return new Node(field, path, leafFields.toArray(new java.lang.reflect.Field[leafFields.size()]), columns, nodes);
+        }
+    }
+}
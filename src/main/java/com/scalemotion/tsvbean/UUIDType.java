@@ -7,7 +7,9 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.util.UUID;
 
-public class UUIDType implements DataType<UUID>, BinaryType<UUID>{
+public class UUIDType implements DataType<UUID>, BinaryType<UUID>, ByteDataType<UUID> {
+    private static final byte[] HEX = "0123456789abcdef".getBytes(Utf8.UTF8);
+
     @Override
     public UUID parse(String str) {
         if (Strings.isNullOrEmpty(str)) {
@@ -21,6 +23,61 @@ public class UUIDType implements DataType<UUID>, BinaryType<UUID>{
         return object == null ? "" : object.toString();
     }
 
+    /**
+     * Parses canonical 36 characters form straight from bytes, anything else falls back to {@link #parse(String)}
+     */
+    @Override
+    public UUID parse(byte[] bytes, int start, int end) {
+        if (start == end) {
+            return null;
+        }
+        if (end - start == 36) {
+            long msb = 0;
+            long lsb = 0;
+            boolean valid = true;
+            for (int i = 0; i < 36 && valid; i++) {
+                byte b = bytes[start + i];
+                if (i == 8 || i == 13 || i == 18 || i == 23) {
+                    valid = b == '-';
+                    continue;
+                }
+                int d = Character.digit(b, 16);
+                valid = d >= 0;
+                if (i < 18) {
+                    msb = msb << 4 | d;
+                } else {
+                    lsb = lsb << 4 | d;
+                }
+            }
+            if (valid) {
+                return new UUID(msb, lsb);
+            }
+        }
+        return parse(Utf8.decode(bytes, start, end));
+    }
+
+    @Override
+    public void write(UUID object, ByteBuilder out) {
+        if (object == null) {
+            return;
+        }
+        appendHex(out, object.getMostSignificantBits() >>> 32, 8);
+        out.append((byte) '-');
+        appendHex(out, object.getMostSignificantBits() >>> 16, 4);
+        out.append((byte) '-');
+        appendHex(out, object.getMostSignificantBits(), 4);
+        out.append((byte) '-');
+        appendHex(out, object.getLeastSignificantBits() >>> 48, 4);
+        out.append((byte) '-');
+        appendHex(out, object.getLeastSignificantBits(), 12);
+    }
+
+    private static void appendHex(ByteBuilder out, long value, int digits) {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            out.append(HEX[(int) (value >>> shift) & 0xf]);
+        }
+    }
+
     @Override
     public String describe() {
         return "UUID";
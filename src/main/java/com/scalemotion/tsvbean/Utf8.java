@@ -0,0 +1,92 @@
+package com.scalemotion.tsvbean;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * UTF-8 helpers of {@link ByteDataType} implementations
+ */
+final class Utf8 {
+    static final Charset UTF8 = Charset.forName("UTF-8");
+    static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    /**
+     * Result of {@link #parseLong(byte[], int, int)} for bytes which are not a short decimal number
+     */
+    static final long NOT_A_NUMBER = Long.MIN_VALUE;
+
+    private Utf8() {
+    }
+
+    /**
+     * Decodes bytes. ASCII is converted without charset decoder, anything else is decoded with validation
+     * @throws IllegalStateException if bytes are not valid UTF-8
+     */
+    static String decode(byte[] bytes, int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            byte b = bytes[i];
+            if (b < 0) {
+                return decodeStrict(bytes, start, end);
+            }
+            chars[i - start] = (char) b;
+        }
+        return new String(chars);
+    }
+
+    private static String decodeStrict(byte[] bytes, int start, int end) {
+        try {
+            return UTF8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes, start, end - start)).toString();
+        } catch (CharacterCodingException e) {
+            throw new IllegalStateException("Malformed UTF-8 at offset " + start + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return whether bytes [start, end) are equal to value
+     */
+    static boolean equals(byte[] bytes, int start, int end, byte[] value) {
+        if (end - start != value.length) {
+            return false;
+        }
+        for (int i = 0; i < value.length; i++) {
+            if (bytes[start + i] != value[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isNull(byte[] bytes, int start, int end) {
+        return equals(bytes, start, end, NULL);
+    }
+
+    static byte[] encode(String s) {
+        return s.getBytes(UTF8);
+    }
+
+    /**
+     * Parses decimal number consisting of optional minus and at most 18 digits
+     * @return number or {@link #NOT_A_NUMBER} if bytes are not such a number
+     */
+    static long parseLong(byte[] bytes, int start, int end) {
+        boolean negative = start < end && bytes[start] == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end || end - i > 18) {
+            return NOT_A_NUMBER;
+        }
+        long res = 0;
+        for (; i < end; i++) {
+            int d = bytes[i] - '0';
+            if (d < 0 || d > 9) {
+                return NOT_A_NUMBER;
+            }
+            res = res * 10 + d;
+        }
+        return negative ? -res : res;
+    }
+}
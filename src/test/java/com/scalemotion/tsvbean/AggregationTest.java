@@ -0,0 +1,135 @@
+package com.scalemotion.tsvbean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class AggregationTest {
+    public static enum Status {
+        ACTIVE, BLOCKED
+    }
+
+    public static class Hit {
+        @Field
+        private Status status;
+        @Field
+        private String country;
+        @Field
+        private long bytes;
+        @Field
+        private Double latency;
+
+        public Hit() {
+        }
+
+        public Hit(Status status, String country, long bytes, Double latency) {
+            this.status = status;
+            this.country = country;
+            this.bytes = bytes;
+            this.latency = latency;
+        }
+    }
+
+    public static class Sample {
+        @Field
+        private Long value;
+
+        public Sample() {
+        }
+
+        public Sample(Long value) {
+            this.value = value;
+        }
+    }
+
+    private List<Hit> hits() {
+        List<Hit> hits = new ArrayList<Hit>();
+        for (int i = 0; i < 1000; i++) {
+            hits.add(new Hit(i % 4 == 0 ? Status.BLOCKED : Status.ACTIVE, i % 2 == 0 ? "US" : "DE", i, i % 10 == 0 ? null : (double) i));
+        }
+        return hits;
+    }
+
+    private Aggregation<Hit> aggregation(BeanSerializer<Hit> serializer) {
+        return new Aggregation<Hit>(serializer).groupBy("status", "country").sum("bytes").max("latency");
+    }
+
+    private void check(AggregationResult<Hit> result) {
+        //BLOCKED is only US, ACTIVE is both US and DE
+        Assert.assertEquals(3, result.size());
+        int blocked = result.find(Status.BLOCKED, "US");
+        Assert.assertEquals(Status.BLOCKED, result.getKey(blocked, 0));
+        Assert.assertEquals("US", result.getKey(blocked, 1));
+        Assert.assertEquals(250, result.getCount(blocked));
+        //sum of 0, 4, 8, ... 996
+        Assert.assertEquals(124500, result.getLong(blocked, 0));
+        Assert.assertEquals(996, result.getDouble(blocked, 1), 0.0001);
+        int activeDe = result.find(Status.ACTIVE, "DE");
+        Assert.assertEquals(500, result.getCount(activeDe));
+        Assert.assertEquals(-1, result.find(Status.BLOCKED, "DE"));
+        Assert.assertEquals(-1, result.find(Status.ACTIVE, "FR"));
+    }
+
+    @Test
+    public void testBeans() {
+        check(aggregation(new BeanSerializer<Hit>(Hit.class)).aggregate(hits()));
+    }
+
+    @Test
+    public void testLines() {
+        BeanSerializer<Hit> serializer = new BeanSerializer<Hit>(Hit.class);
+        List<String> lines = new ArrayList<String>();
+        for (Hit h : hits()) {
+            lines.add(serializer.toString(h));
+        }
+        check(aggregation(serializer).aggregateLines(lines));
+    }
+
+    @Test
+    public void testParallel() {
+        BeanSerializer<Hit> serializer = new BeanSerializer<Hit>(Hit.class);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            check(aggregation(serializer).aggregate(hits().iterator(), executor, 7));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testNoKeys() {
+        AggregationResult<Hit> result = new Aggregation<Hit>(new BeanSerializer<Hit>(Hit.class)).min("bytes").aggregate(hits());
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(1000, result.getCount(0));
+        Assert.assertEquals(0, result.getLong(0, 0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFrozen() {
+        Aggregation<Hit> aggregation = aggregation(new BeanSerializer<Hit>(Hit.class));
+        aggregation.aggregate(hits());
+        aggregation.sum("latency");
+    }
+
+    @Test
+    public void testNullKey() {
+        List<Sample> samples = new ArrayList<Sample>();
+        samples.add(new Sample(null));
+        samples.add(new Sample(Long.MIN_VALUE));
+        samples.add(new Sample(null));
+        samples.add(new Sample(0L));
+        AggregationResult<Sample> result = new Aggregation<Sample>(new BeanSerializer<Sample>(Sample.class)).groupBy("value").aggregate(samples);
+        Assert.assertEquals(3, result.size());
+        int nulls = result.find(new Object[]{null});
+        Assert.assertNull(result.getKey(nulls, 0));
+        Assert.assertEquals(2, result.getCount(nulls));
+        int min = result.find(Long.MIN_VALUE);
+        Assert.assertEquals(Long.MIN_VALUE, result.getKey(min, 0));
+        Assert.assertEquals(1, result.getCount(min));
+        Assert.assertEquals(1, result.getCount(result.find(0L)));
+    }
+}
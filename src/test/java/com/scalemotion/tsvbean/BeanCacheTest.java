@@ -0,0 +1,229 @@
+package com.scalemotion.tsvbean;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+public class BeanCacheTest {
+    public static class Account {
+        @KeyField
+        @Field
+        long id;
+        @Field
+        String name;
+        @Field
+        Double balance;
+    }
+
+    /**
+     * Text type which waits for permission to parse, so a load can be caught in the middle
+     */
+    public static class BlockingType implements DataType<String> {
+        static volatile CountDownLatch parsing;
+        static volatile CountDownLatch proceed;
+
+        @Override
+        public String parse(String str) {
+            parsing.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return str;
+        }
+
+        @Override
+        public String toString(String object) {
+            return object;
+        }
+
+        @Override
+        public String describe() {
+            return "blocking";
+        }
+    }
+
+    public static class Note {
+        @Field(type = BlockingType.class)
+        String text;
+    }
+
+    private final BeanSerializer<Account> serializer = new BeanSerializer<Account>(Account.class);
+    private final List<Long> offsets = new ArrayList<Long>();
+    private File file;
+
+    @Before
+    public void writeFile() throws IOException {
+        file = File.createTempFile("cache", ".tsv");
+        FileOutputStream out = new FileOutputStream(file);
+        long offset = 0;
+        try {
+            for (int i = 0; i < 100; i++) {
+                Account a = new Account();
+                a.id = i;
+                a.name = "account" + i;
+                a.balance = i % 3 == 0 ? null : i * 1.5;
+                byte[] line = (serializer.toString(a) + (i % 2 == 0 ? "\n" : "\r\n")).getBytes("UTF-8");
+                offsets.add(offset);
+                out.write(line);
+                offset += line.length;
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Test
+    public void testReadThrough() throws IOException {
+        BeanCache<Account> cache = new BeanCache<Account>(serializer, file, 1024 * 1024);
+        try {
+            Account a = cache.get(offsets.get(7));
+            Assert.assertEquals(7, a.id);
+            Assert.assertEquals("account7", a.name);
+            Assert.assertEquals(10.5, a.balance, 0.0);
+            Assert.assertSame(a, cache.get(offsets.get(7)));
+            Assert.assertEquals(1, cache.getMisses());
+            Assert.assertEquals(1, cache.getHits());
+            Assert.assertSame(a, cache.getByKey(7L));
+            Assert.assertNull(cache.getByKey(8L));
+            Assert.assertEquals(99, cache.get(offsets.get(99)).id);
+            cache.invalidate(offsets.get(7));
+            Assert.assertNull(cache.getIfPresent(offsets.get(7)));
+            Assert.assertNull(cache.getByKey(7L));
+            //second get, getByKey(8), getIfPresent and getByKey(7)
+            Assert.assertEquals(5, cache.getMisses());
+            cache.close();
+            Assert.assertEquals(0, cache.size());
+            Assert.assertEquals(0, cache.getWeight());
+            Assert.assertNull(cache.getByKey(99L));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        BeanCache<Account> cache = new BeanCache<Account>(serializer, file, 2000, 2, false);
+        try {
+            for (long offset : offsets) {
+                cache.get(offset);
+            }
+            Assert.assertTrue(cache.getWeight() <= 2000);
+            Assert.assertTrue(cache.getEvictions() > 0);
+            Assert.assertEquals(100, cache.size() + cache.getEvictions());
+            //the most recent line is never evicted
+            Assert.assertNotNull(cache.getIfPresent(offsets.get(99)));
+            Assert.assertEquals(99, cache.getByKey(99L).id);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testCompact() throws IOException {
+        BeanCache<Account> cache = new BeanCache<Account>(serializer, file, 1024 * 1024, 4, true);
+        try {
+            for (long offset : offsets) {
+                Account a = cache.get(offset);
+                Account cached = cache.get(offset);
+                Assert.assertTrue(a != cached);
+                Assert.assertEquals(serializer.toString(a), serializer.toString(cached));
+            }
+            Assert.assertEquals(100, cache.getHits());
+            Assert.assertEquals(100, cache.size());
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testConcurrentMiss() throws Exception {
+        final BeanCache<Account> cache = new BeanCache<Account>(serializer, file, 1024 * 1024);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Future<Account>> futures = new ArrayList<Future<Account>>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(new Callable<Account>() {
+                    @Override
+                    public Account call() throws Exception {
+                        start.await();
+                        return cache.get(offsets.get(42));
+                    }
+                }));
+            }
+            start.countDown();
+            Account first = futures.get(0).get();
+            for (Future<Account> f : futures) {
+                //line is loaded once, so everybody gets the same bean
+                Assert.assertSame(first, f.get());
+            }
+            Assert.assertEquals(1, cache.size());
+        } finally {
+            executor.shutdown();
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testInvalidateWhileLoading() throws Exception {
+        BlockingType.parsing = new CountDownLatch(1);
+        BlockingType.proceed = new CountDownLatch(1);
+        //whole line is one column
+        final BeanCache<Note> cache = new BeanCache<Note>(new BeanSerializer<Note>(Note.class, "|"), file, 1024 * 1024);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Note> loaded = executor.submit(new Callable<Note>() {
+                @Override
+                public Note call() throws Exception {
+                    return cache.get(0);
+                }
+            });
+            BlockingType.parsing.await();
+            cache.invalidate(0);
+            BlockingType.proceed.countDown();
+            Assert.assertEquals("0\taccount0\tnull", loaded.get().text);
+            //line was read before invalidation, so it isn't cached
+            Assert.assertNull(cache.getIfPresent(0));
+            Assert.assertEquals(0, cache.size());
+        } finally {
+            executor.shutdown();
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testCompactKey() throws IOException {
+        BeanCache<Account> cache = new BeanCache<Account>(serializer, file, 1024 * 1024, 4, true);
+        try {
+            cache.get(offsets.get(5));
+            Assert.assertEquals("account5", cache.getByKey(5L).name);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBeyondEnd() throws IOException {
+        BeanCache<Account> cache = new BeanCache<Account>(serializer, file, 1024);
+        try {
+            cache.get(file.length());
+        } finally {
+            cache.close();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.scalemotion.tsvbean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class BeanIndexBuilderTest {
+    public static enum Status {
+        ACTIVE, BLOCKED, DELETED
+    }
+
+    public static class Account {
+        @Field
+        private long id;
+        @Field(type = DateTimeType.class, args = "yyyy-MM-dd HH:mm:ss")
+        private Date created;
+        @Field
+        private Double balance;
+        @Field
+        private Status status;
+
+        public Account() {
+        }
+
+        public Account(long id, Date created, Double balance, Status status) {
+            this.id = id;
+            this.created = created;
+            this.balance = balance;
+            this.status = status;
+        }
+    }
+
+    private List<Account> accounts() {
+        List<Account> accounts = new ArrayList<Account>();
+        for (int i = 0; i < 10000; i++) {
+            accounts.add(new Account(i % 5000, new Date(i * 1000L), i % 7 == 0 ? null : i - 5000.5, Status.values()[i % 3]));
+        }
+        return accounts;
+    }
+
+    private void check(BeanIndexes<Account> indexes) {
+        List<Account> byId = indexes.hash("id").get(42L);
+        Assert.assertEquals(2, byId.size());
+        Assert.assertEquals(new Date(42000), byId.get(0).created);
+        Assert.assertEquals(new Date(5042000), byId.get(1).created);
+        Assert.assertNull(indexes.hash("id").getFirst(5000));
+        Assert.assertEquals(5000, indexes.hash("id").distinct());
+
+        List<Account> created = indexes.sorted("created").range(new Date(10000), new Date(19000));
+        Assert.assertEquals(10, created.size());
+        Assert.assertEquals(10, created.get(0).id);
+
+        SortedIndex<Account> balance = indexes.sorted("balance");
+        List<Account> negative = balance.range(-10.0, -0.1);
+        //balances -9.5 .. -0.5 except null ones (i = 4991 and i = 4998)
+        Assert.assertEquals(8, negative.size());
+        Assert.assertEquals(-8.5, negative.get(0).balance, 0.0001);
+        Assert.assertEquals(10000 - 1429, balance.size());
+
+        EnumIndex<Account> status = indexes.enums("status");
+        Assert.assertEquals(3334, status.count(Status.ACTIVE));
+        BitSet blocked = status.bitmap(Status.BLOCKED);
+        Assert.assertEquals(3333, blocked.cardinality());
+        Assert.assertEquals(Status.DELETED, status.get(Status.DELETED).get(0).status);
+    }
+
+    private BeanIndexBuilder<Account> builder() {
+        return new BeanIndexBuilder<Account>(new BeanSerializer<Account>(Account.class))
+                .hash("id").sorted("created").sorted("balance").enums("status");
+    }
+
+    @Test
+    public void testStreaming() {
+        BeanIndexBuilder<Account> builder = builder();
+        for (Account a : accounts()) {
+            builder.add(a);
+        }
+        check(builder.build());
+    }
+
+    @Test
+    public void testParallel() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            check(builder().build(accounts(), executor, 333));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testNegativeZero() {
+        BeanIndexBuilder<Account> builder = new BeanIndexBuilder<Account>(new BeanSerializer<Account>(Account.class)).hash("balance");
+        builder.add(new Account(1, null, -0.0, null));
+        builder.add(new Account(2, null, 0.0, null));
+        LongHashIndex<Account> balance = builder.build().hash("balance");
+        Assert.assertEquals(1, balance.distinct());
+        Assert.assertEquals(2, balance.get(0.0).size());
+        Assert.assertEquals(2, balance.get(-0.0).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongType() {
+        new BeanIndexBuilder<Account>(new BeanSerializer<Account>(Account.class)).enums("id");
+    }
+}
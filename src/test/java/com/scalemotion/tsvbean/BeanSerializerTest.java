@@ -94,6 +94,27 @@ public class BeanSerializerTest {
         Assert.assertEquals(row, row2);
     }
 
+    @Test
+    public void testEmbedded() {
+        BeanSerializer<Bean1> mapper = new BeanSerializer<Bean1>(Bean1.class);
+        Bean1 original = new Bean1();
+        original.em1.bean3.d12 = 0.25f;
+        original.em2 = null;
+        Bean1 parsed = mapper.parse(mapper.toString(original));
+        Assert.assertEquals(0.25f, parsed.em1.bean3.d12, 0.0);
+        Assert.assertEquals(0.55, parsed.em1.bean3.d11, 0.0);
+        //null embedded beans are created on parse, their fields are formatted as nulls
+        Assert.assertNotNull(parsed.em2.bean3);
+        Assert.assertNull(parsed.em2.bean3.d11);
+        Assert.assertNull(parsed.em3.d1);
+        mapper.setHeader(new String[]{"em1_bean3_d11", "nullEmbedded_bean3_d12", "s2"});
+        Assert.assertEquals("0.55\tnull\t666", mapper.toString(original));
+        parsed = mapper.parse("0.1\t0.2\t7");
+        Assert.assertEquals(0.1, parsed.em1.bean3.d11, 0.0);
+        Assert.assertEquals(0.2f, parsed.em3.bean3.d12, 0.0);
+        Assert.assertEquals(7, parsed.i);
+    }
+
     @Test
     public void testHeader() {
         BeanSerializer<Bean1> mapper = new BeanSerializer<Bean1>(Bean1.class);
@@ -103,8 +124,69 @@ public class BeanSerializerTest {
         Assert.assertNotNull(parsed.date);
     }
 
-}
+    @Test
+    public void testLazy() {
+        BeanSerializer<Bean1> mapper = new BeanSerializer<Bean1>(Bean1.class);
+        String row = mapper.toString(new Bean1());
+        RowView<Bean1> view = mapper.parseLazy(row);
+        Assert.assertEquals(666, view.get("s2"));
+        Assert.assertEquals("0.5", view.getRaw("second_d1"));
+        Assert.assertNull(view.get("nullEmbedded_d1"));
+        Assert.assertEquals(row, mapper.toString(view.toBean()));
+        try {
+            mapper.parseLazy("2011-12-12 14:08:01\t1").get("b4");
+            Assert.fail("Line has too few fields");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testFilter() {
+        BeanSerializer<EnumContainer> mapper = new BeanSerializer<EnumContainer>(EnumContainer.class);
+        RowFilter<EnumContainer> filter = new RowFilter<EnumContainer>(mapper).equalTo("noName", EnumNoName.TWO);
+        Assert.assertNotNull(mapper.parse("1\tTWO", filter));
+        Assert.assertNull(mapper.parse("1\tONE", filter));
+        filter.in("withName", EnumWithName.TWO);
+        Assert.assertNull(mapper.parse("1\tTWO", filter));
+        //rejected before unknown enum key in second column is parsed
+        Assert.assertNull(mapper.parse("1\tUNKNOWN", filter));
+        Assert.assertEquals(EnumWithName.TWO, mapper.parse("2\tTWO", filter).withName);
+        try {
+            new RowFilter<EnumContainer>(mapper).equalTo("noName", "TWO");
+            Assert.fail("String can't be compared with enum field");
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
 
+        BeanSerializer<Bean1> beanMapper = new BeanSerializer<Bean1>(Bean1.class);
+        beanMapper.setHeader(new String[]{"s2", "second_d1"});
+        RowFilter<Bean1> range = new RowFilter<Bean1>(beanMapper).atLeast("s2", 10).atMost("second_d1", 0.5);
+        Assert.assertNull(beanMapper.parse("9\t0.1", range));
+        Assert.assertNull(beanMapper.parse("10\t0.6", range));
+        Assert.assertEquals(10, beanMapper.parse("10\t0.5", range).i);
+    }
 
+    @Test
+    public void testRawFilterMatchesParsed() {
+        BeanSerializer<EnumContainer> mapper = new BeanSerializer<EnumContainer>(EnumContainer.class);
+        RowFilter<EnumContainer> nullEnum = new RowFilter<EnumContainer>(mapper).equalTo("noName", null);
+        for (String line : new String[]{"1\tnull", "1\tONE", "null\tnull"}) {
+            Assert.assertEquals(line, mapper.parse(line).noName == null, mapper.parse(line, nullEnum) != null);
+        }
 
+        BeanSerializer<Bean1> beanMapper = new BeanSerializer<Bean1>(Bean1.class);
+        beanMapper.setHeader(new String[]{"nullString"});
+        RowFilter<Bean1> nullToken = new RowFilter<Bean1>(beanMapper).equalTo("nullString", "null");
+        for (String line : new String[]{"null", "x", ""}) {
+            Assert.assertEquals(line, "null".equals(beanMapper.parse(line).nullString), beanMapper.parse(line, nullToken) != null);
+        }
+        try {
+            new RowFilter<Bean1>(beanMapper).equalTo("nullString", null);
+            Assert.fail("String field is never null");
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+    }
 
+}
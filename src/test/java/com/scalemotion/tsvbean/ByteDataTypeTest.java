@@ -0,0 +1,130 @@
+package com.scalemotion.tsvbean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Date;
+import java.util.UUID;
+
+public class ByteDataTypeTest {
+    public static class Row {
+        @Field
+        long id;
+        @Field
+        int count;
+        @Field
+        String name;
+        @Field
+        Double ratio;
+        @Field
+        Date created;
+        @Field(args = "id")
+        BeanSerializerTest.EnumWithName kind;
+        @Field(type = UUIDType.class)
+        UUID uuid;
+    }
+
+    private static byte[] utf8(String s) throws UnsupportedEncodingException {
+        return s.getBytes("UTF-8");
+    }
+
+    private static <T> void assertSame(ByteDataType<T> bytesType, DataType<T> type, String text) throws Exception {
+        byte[] padded = utf8("\t" + text + "\t");
+        T expected = type.parse(text);
+        T parsed = bytesType.parse(padded, 1, padded.length - 1);
+        Assert.assertEquals(expected, parsed);
+        ByteBuilder out = new ByteBuilder(1);
+        bytesType.write(parsed, out);
+        Assert.assertEquals(type.toString(expected), out.toString());
+    }
+
+    @Test
+    public void testScalars() throws Exception {
+        ScalarType<Long> longs = ScalarType.forClass(Long.class);
+        for (String s : new String[]{"0", "-1", "123456789012345678", "9223372036854775807", "-9223372036854775808", "null"}) {
+            assertSame(longs, longs, s);
+        }
+        ScalarType<Integer> ints = ScalarType.forClass(Integer.class);
+        for (String s : new String[]{"7", "-2147483648", "2147483647", "000012"}) {
+            assertSame(ints, ints, s);
+        }
+        ScalarType<String> strings = ScalarType.forClass(String.class);
+        for (String s : new String[]{"", "plain", "null", "\u043f\u0440\u0438\u0432\u0435\u0442", "\ud83d\ude00"}) {
+            assertSame(strings, strings, s);
+        }
+        ScalarType<Double> doubles = ScalarType.forClass(Double.class);
+        assertSame(doubles, doubles, "0.25");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testIntOverflow() throws Exception {
+        byte[] b = utf8("2147483648");
+        ScalarType.forClass(Integer.class).parse(b, 0, b.length);
+    }
+
+    @Test
+    public void testMalformedUtf8() throws Exception {
+        byte[] b = {'a', (byte) 0xc3, 'b'};
+        //unlike String constructor, byte path doesn't replace malformed input
+        Assert.assertEquals("a\ufffdb", new String(b, "UTF-8"));
+        try {
+            ScalarType.forClass(String.class).parse(b, 0, b.length);
+            Assert.fail("Malformed UTF-8 should not be parsed");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testOthers() throws Exception {
+        DateTimeType dates = new DateTimeType();
+        assertSame(dates, dates, "2011-12-12 14:08:01");
+        assertSame(dates, dates, "null");
+        DateTimeType custom = new DateTimeType();
+        custom.setParams(new String[]{"dd.MM.yyyy"});
+        assertSame(custom, custom, "12.12.2011");
+        UUIDType uuids = new UUIDType();
+        assertSame(uuids, uuids, "0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0");
+        assertSame(uuids, uuids, "");
+        EnumType<BeanSerializerTest.EnumWithName> enums = new EnumType<BeanSerializerTest.EnumWithName>();
+        enums.setClass(BeanSerializerTest.EnumWithName.class);
+        for (BeanSerializerTest.EnumWithName e : BeanSerializerTest.EnumWithName.values()) {
+            assertSame(enums, enums, e.name());
+        }
+    }
+
+    @Test
+    public void testBean() throws Exception {
+        BeanSerializer<Row> serializer = new BeanSerializer<Row>(Row.class);
+        Row row = new Row();
+        row.id = -42;
+        row.count = 7;
+        row.name = "\u0438\u043c\u044f";
+        row.ratio = 0.5;
+        row.created = new Date(1323684481000L);
+        row.kind = BeanSerializerTest.EnumWithName.values()[0];
+        row.uuid = UUID.randomUUID();
+        String line = serializer.toString(row);
+        ByteBuilder out = new ByteBuilder();
+        serializer.write(row, out);
+        Assert.assertEquals(line, out.toString());
+        byte[] bytes = out.toByteArray();
+        Assert.assertEquals(line, serializer.toString(serializer.parse(bytes, 0, bytes.length)));
+    }
+
+    @Test
+    public void testSeparator() throws Exception {
+        BeanSerializer<Row> serializer = new BeanSerializer<Row>(Row.class, ";", "name;id");
+        Row row = new Row();
+        row.id = 3;
+        row.name = "a";
+        ByteBuilder out = new ByteBuilder();
+        serializer.write(row, out);
+        Assert.assertEquals("a;3", out.toString());
+        byte[] bytes = out.toByteArray();
+        Row parsed = serializer.parse(bytes, 0, bytes.length);
+        Assert.assertEquals("a", parsed.name);
+        Assert.assertEquals(3, parsed.id);
+    }
+}
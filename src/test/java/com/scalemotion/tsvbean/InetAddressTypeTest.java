@@ -1,11 +1,90 @@
 package com.scalemotion.tsvbean;
 
-/**
- * Created by IntelliJ IDEA.
- * User: vklimontovich
- * Date: 5/29/12
- * Time: 1:40 AM
- * To change this template use File | Settings | File Templates.
- */
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+
 public class InetAddressTypeTest {
+    public static class Request {
+        @Field(type = InetAddressType.class)
+        private InetAddress client;
+        @Field(type = InetAddressType.class)
+        private int proxy;
+    }
+
+    @Test
+    public void testIPv4() {
+        InetAddress address = InetAddressType.parseAddress("192.168.0.254");
+        Assert.assertTrue(address instanceof Inet4Address);
+        Assert.assertEquals("192.168.0.254", InetAddressType.toString(address));
+        Assert.assertEquals(0xc0a800fe, InetAddressType.parseIPv4("192.168.0.254"));
+        Assert.assertEquals("255.0.0.1", InetAddressType.ipv4ToString(InetAddressType.parseIPv4("255.0.0.1")));
+    }
+
+    @Test
+    public void testIPv6() {
+        InetAddress address = InetAddressType.parseAddress("2001:DB8:0:0:0:0:2:1");
+        Assert.assertTrue(address instanceof Inet6Address);
+        Assert.assertEquals("2001:db8::2:1", InetAddressType.toString(address));
+        Assert.assertEquals("::1", InetAddressType.toString(InetAddressType.parseAddress("::1")));
+        Assert.assertEquals("::", InetAddressType.toString(InetAddressType.parseAddress("::")));
+        Assert.assertEquals("1:0:0:1::1", InetAddressType.toString(InetAddressType.parseAddress("1:0:0:1:0:0:0:1")));
+        Assert.assertEquals("64:ff9b::a00:1", InetAddressType.toString(InetAddressType.parseAddress("64:ff9b::10.0.0.1")));
+        long[] pair = new long[2];
+        InetAddressType.parseIPv6("fe80::1", pair);
+        Assert.assertEquals(0xfe80000000000000L, pair[0]);
+        Assert.assertEquals(1L, pair[1]);
+    }
+
+    @Test
+    public void testMalformed() {
+        String[] bad = {"1.2.3", "1.2.3.4.5", "256.1.1.1", "1..2.3", "1.2.3.", "1:2", "1:::2", "::1::2", "12345::", "1:2:3:4:5:6:7:8:9", "x.1.1.1", "\uff12\uff10\uff10\uff11::1", "\u0661.1.1.1"};
+        for (String s : bad) {
+            try {
+                InetAddressType.parseAddress(s);
+                Assert.fail("Address '" + s + "' should not be parsed");
+            } catch (IllegalStateException e) {
+                //expected
+            }
+        }
+    }
+
+    @Test
+    public void testBinary() {
+        InetAddressType<InetAddress> type = new InetAddressType<InetAddress>();
+        type.setClass(InetAddress.class);
+        InetAddress v4 = type.parse("10.1.2.3");
+        InetAddress v6 = type.parse("2001:db8::1");
+        Assert.assertEquals(5, BinaryHelper.toBytes(v4, type).length);
+        Assert.assertEquals(17, BinaryHelper.toBytes(v6, type).length);
+        Assert.assertEquals(v4, BinaryHelper.fromBytes(BinaryHelper.toBytes(v4, type), type, 0));
+        Assert.assertEquals(v6, BinaryHelper.fromBytes(BinaryHelper.toBytes(v6, type), type, 0));
+        Assert.assertNull(BinaryHelper.fromBytes(BinaryHelper.toBytes(null, type), type, 0));
+    }
+
+    @Test
+    public void testBinaryInt() {
+        InetAddressType<Integer> boxed = new InetAddressType<Integer>();
+        boxed.setClass(Integer.class);
+        Assert.assertNull(BinaryHelper.fromBytes(BinaryHelper.toBytes(null, boxed), boxed, 0));
+        Integer address = boxed.parse("10.1.2.3");
+        Assert.assertEquals(5, BinaryHelper.toBytes(address, boxed).length);
+        Assert.assertEquals(address, BinaryHelper.fromBytes(BinaryHelper.toBytes(address, boxed), boxed, 0));
+        InetAddressType<Integer> primitive = new InetAddressType<Integer>();
+        primitive.setClass(int.class);
+        Assert.assertEquals(4, BinaryHelper.toBytes(address, primitive).length);
+        Assert.assertEquals(address, BinaryHelper.fromBytes(BinaryHelper.toBytes(address, primitive), primitive, 0));
+    }
+
+    @Test
+    public void testSerializer() {
+        BeanSerializer<Request> serializer = new BeanSerializer<Request>(Request.class);
+        Request r = serializer.parse("2001:db8::1\t172.16.0.1");
+        Assert.assertEquals(InetAddressType.parseIPv4("172.16.0.1"), r.proxy);
+        Assert.assertEquals("2001:db8::1\t172.16.0.1", serializer.toString(r));
+        Assert.assertEquals("null\t0.0.0.0", serializer.toString(serializer.parse("null\tnull")));
+    }
 }
@@ -0,0 +1,72 @@
+package com.scalemotion.tsvbean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+public class PartitionedWriterTest {
+    public static class Event {
+        @KeyField
+        @Field(type = UUIDType.class)
+        private UUID id;
+        @Field
+        private int value;
+
+        public Event() {
+        }
+
+        public Event(UUID id, int value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+    @Test
+    public void testShards() throws IOException {
+        BeanSerializer<Event> serializer = new BeanSerializer<Event>(Event.class);
+        File dir = File.createTempFile("shards", "");
+        dir.delete();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        PartitionedWriter<Event> writer = PartitionedWriter.toDirectory(serializer, dir, new boolean[]{true, false, true, false}, executor);
+        writer.setBatchSize(10);
+        for (int i = 0; i < 1000; i++) {
+            writer.write(new Event(UUID.randomUUID(), i));
+        }
+        writer.close();
+        executor.shutdown();
+
+        Set<Integer> values = new HashSet<Integer>();
+        for (int shard = 0; shard < 4; shard++) {
+            boolean gzip = shard % 2 == 0;
+            File file = new File(dir, String.format("part-%05d.tsv%s", shard, gzip ? ".gz" : ""));
+            InputStream in = new FileInputStream(file);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(gzip ? new GZIPInputStream(in) : in, "UTF-8"));
+            try {
+                Assert.assertEquals("id\tvalue", reader.readLine());
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Event e = serializer.parse(line);
+                    Assert.assertEquals(shard, writer.shardOf(e));
+                    values.add(e.value);
+                }
+            } finally {
+                reader.close();
+            }
+            file.delete();
+        }
+        dir.delete();
+        Assert.assertEquals(1000, values.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoKey() throws IOException {
+        new PartitionedWriter<InetAddressTypeTest.Request>(new BeanSerializer<InetAddressTypeTest.Request>(InetAddressTypeTest.Request.class), null, 2, false, null);
+    }
+}
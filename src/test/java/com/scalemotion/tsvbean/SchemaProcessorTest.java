@@ -0,0 +1,132 @@
+package com.scalemotion.tsvbean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+public class SchemaProcessorTest {
+    static class Base {
+        @Field
+        long id;
+    }
+
+    static class Event extends Base {
+        @KeyField
+        @Field(name = "eventDate", type = DateTimeType.class, args = "yyyy-MM-dd HH:mm:ss")
+        Date date;
+        @Field
+        int count;
+        @Field
+        BeanSerializerTest.EnumNoName kind;
+        @EmbeddedDataField
+        Location location;
+        @EmbeddedDataField(fieldPrefix = "to_")
+        Location destination;
+    }
+
+    static class Location {
+        @Field
+        Double lat;
+        @Field(name = "lon")
+        Double longitude;
+    }
+
+    public static class Account {
+        @Field
+        private long id;
+        @Field
+        private boolean active;
+        @EmbeddedDataField
+        private Location home;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+
+        public Location getHome() {
+            return home;
+        }
+
+        public void setHome(Location home) {
+            this.home = home;
+        }
+    }
+
+    @Test
+    public void testGenerated() {
+        Assert.assertNotNull(GeneratedSchema.find(Event.class));
+        Assert.assertNotNull(GeneratedSchema.find(Account.class));
+        //private fields without accessors can't be accessed by generated code
+        Assert.assertNull(GeneratedSchema.find(BeanSerializerTest.Bean1.class));
+        //lookup is cached, but every call returns new schema
+        Assert.assertTrue(GeneratedSchema.find(Event.class) != GeneratedSchema.find(Event.class));
+        Assert.assertNull(GeneratedSchema.find(BeanSerializerTest.Bean1.class));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        BeanSerializer<Event> serializer = new BeanSerializer<Event>(Event.class);
+        Assert.assertEquals("[eventDate, count, kind, location_lat, location_lon, to_lat, to_lon, id]", Arrays.toString(serializer.getHeader()));
+        Assert.assertTrue(serializer.getField("eventDate").isKey());
+        Event event = serializer.parse("2011-12-12 14:08:01\t3\tTWO\t1.5\tnull\tnull\tnull\t42");
+        Assert.assertEquals(42, event.id);
+        Assert.assertEquals(3, event.count);
+        Assert.assertSame(BeanSerializerTest.EnumNoName.TWO, event.kind);
+        Assert.assertEquals(1.5, event.location.lat, 0.0);
+        Assert.assertNull(event.location.longitude);
+        Assert.assertNotNull(event.destination);
+        Assert.assertEquals("2011-12-12 14:08:01\t3\tTWO\t1.5\tnull\tnull\tnull\t42", serializer.toString(event));
+        event.destination = null;
+        Assert.assertNull(serializer.getField("to_lat").get(event));
+    }
+
+    @Test
+    public void testAccessors() {
+        BeanSerializer<Account> serializer = new BeanSerializer<Account>(Account.class);
+        Account account = serializer.parse("7\ttrue\t1.5\tnull");
+        Assert.assertEquals(7, account.getId());
+        Assert.assertTrue(account.isActive());
+        Assert.assertEquals(1.5, account.getHome().lat, 0.0);
+        Assert.assertEquals("7\ttrue\t1.5\tnull", serializer.toString(account));
+        ByteBuilder out = new ByteBuilder();
+        serializer.write(account, out);
+        Assert.assertEquals("7\ttrue\t1.5\tnull", new String(out.toByteArray(), LineReader.UTF8));
+        account.setHome(null);
+        Assert.assertEquals("7\ttrue\tnull\tnull", serializer.toString(account));
+        //other header goes through generated accessors
+        serializer.setHeader(new String[]{"home_lon", "id"});
+        Assert.assertEquals(3, serializer.parse("2.5\t3").getId());
+    }
+
+    @Test
+    public void testFieldCount() {
+        BeanSerializer<Account> serializer = new BeanSerializer<Account>(Account.class);
+        byte[] bytes = "7\ttrue".getBytes(LineReader.UTF8);
+        try {
+            serializer.parse(bytes, 0, bytes.length);
+            Assert.fail("Line has too few fields");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Too few fields in line (2)"));
+        }
+        try {
+            serializer.parse("7\ttrue\t1.5\tnull\t1");
+            Assert.fail("Line has too many fields");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Number of fields in line exceeded"));
+        }
+    }
+}
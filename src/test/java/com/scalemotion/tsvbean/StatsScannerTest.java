@@ -0,0 +1,107 @@
+package com.scalemotion.tsvbean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class StatsScannerTest {
+    public static class Row {
+        @Field
+        private long id;
+        @Field
+        private String name;
+        @Field
+        private Integer value;
+
+        public Row() {
+        }
+
+        public Row(long id, String name, Integer value) {
+            this.id = id;
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    private File writeFile(BeanSerializer<Row> serializer, int rows) throws IOException {
+        File file = File.createTempFile("stats", ".tsv");
+        file.deleteOnExit();
+        Writer w = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            w.write("id\tname\tvalue\n");
+            for (int i = 0; i < rows; i++) {
+                w.write(serializer.toString(new Row(i, "name" + (i % 100), i % 5 == 0 ? null : i % 1000)));
+                w.write('\n');
+            }
+            w.write("broken line\n");
+        } finally {
+            w.close();
+        }
+        return file;
+    }
+
+    @Test
+    public void testFullScan() throws IOException {
+        BeanSerializer<Row> serializer = new BeanSerializer<Row>(Row.class);
+        File file = writeFile(serializer, 100000);
+        StatsScanner<Row> scanner = new StatsScanner<Row>(serializer);
+        scanner.setHeaderLine(true);
+        scanner.setRangeSize(100 * 1024);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            TableStats stats = scanner.scan(file, executor);
+            Assert.assertEquals(100000, stats.getRowCount());
+            Assert.assertEquals(1, stats.getErrorCount());
+            Assert.assertEquals(1000, stats.getSampleRows().size());
+            ColumnStats id = stats.getColumn("id");
+            Assert.assertEquals(0L, id.getMin());
+            Assert.assertEquals(99999L, id.getMax());
+            Assert.assertEquals(100000, id.getDistinct(), 2000);
+            Assert.assertEquals(100, stats.getColumn("name").getDistinct(), 3);
+            ColumnStats value = stats.getColumn("value");
+            Assert.assertEquals(0.2, value.getNullRate(), 0.0001);
+            long[] histogram = value.getHistogram(10);
+            long total = 0;
+            for (long h : histogram) {
+                total += h;
+            }
+            Assert.assertEquals(80000, total, 10);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSampledScan() throws IOException {
+        BeanSerializer<Row> serializer = new BeanSerializer<Row>(Row.class);
+        File file = writeFile(serializer, 100000);
+        StatsScanner<Row> scanner = new StatsScanner<Row>(serializer);
+        scanner.setSampledRanges(10, 10 * 1024);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            TableStats stats = scanner.scan(file, executor);
+            Assert.assertTrue(stats.getRowCount() < 100000);
+            Assert.assertEquals(100000, stats.getEstimatedRowCount(), 10000);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testHyperLogLog() {
+        HyperLogLog a = new HyperLogLog();
+        HyperLogLog b = new HyperLogLog();
+        for (long i = 0; i < 500000; i++) {
+            (i % 2 == 0 ? a : b).add(i);
+        }
+        a.merge(b);
+        Assert.assertEquals(500000, a.cardinality(), 500000 * 0.03);
+    }
+}
@@ -0,0 +1,134 @@
+package com.scalemotion.tsvbean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class TailReaderTest {
+    public static class Entry {
+        @Field
+        private int id;
+        @Field
+        private String name;
+    }
+
+    private static void append(File file, String s) throws IOException {
+        FileOutputStream out = new FileOutputStream(file, true);
+        try {
+            out.write(s.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    @Test
+    public void testFollow() throws IOException, InterruptedException {
+        File file = File.createTempFile("tail", ".tsv");
+        File checkpoint = new File(file.getPath() + ".offset");
+        file.deleteOnExit();
+        checkpoint.deleteOnExit();
+        BeanSerializer<Entry> serializer = new BeanSerializer<Entry>(Entry.class);
+
+        TailReader<Entry> reader = new TailReader<Entry>(serializer, file, checkpoint);
+        reader.setPollInterval(10);
+        Assert.assertTrue(reader.take(50, TimeUnit.MILLISECONDS).isEmpty());
+
+        append(file, "1\tONE\n2\tTWO\n1\tT");
+        List<Entry> batch = reader.poll();
+        Assert.assertEquals(2, batch.size());
+        Assert.assertEquals(2, batch.get(1).id);
+        Assert.assertEquals(12, reader.getOffset());
+        Assert.assertTrue(reader.poll().isEmpty());
+        reader.commit();
+
+        append(file, "WO\n");
+        TailReader<Entry> restarted = new TailReader<Entry>(serializer, file, checkpoint);
+        batch = restarted.take(1, TimeUnit.SECONDS);
+        Assert.assertEquals(1, batch.size());
+        Assert.assertEquals("TWO", batch.get(0).name);
+        Assert.assertEquals(file.length(), restarted.getOffset());
+        checkpoint.delete();
+        file.delete();
+    }
+
+    @Test
+    public void testBadLine() throws IOException {
+        File file = File.createTempFile("tail", ".tsv");
+        file.deleteOnExit();
+        BeanSerializer<Entry> serializer = new BeanSerializer<Entry>(Entry.class);
+        append(file, "1\tONE\nx\tBAD\n3\tTHREE\n");
+
+        TailReader<Entry> reader = new TailReader<Entry>(serializer, file, null);
+        List<Entry> batch = reader.poll();
+        Assert.assertEquals(1, batch.size());
+        Assert.assertEquals(6, reader.getOffset());
+        try {
+            reader.poll();
+            Assert.fail("Line 'x\tBAD' can't be parsed");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+        Assert.assertEquals(6, reader.getOffset());
+
+        final List<Long> bad = new ArrayList<Long>();
+        reader.setBadLineHandler(new TailReader.BadLineHandler() {
+            @Override
+            public void onBadLine(long offset, String line, RuntimeException e) {
+                bad.add(offset);
+            }
+        });
+        batch = reader.poll();
+        Assert.assertEquals(1, batch.size());
+        Assert.assertEquals(3, batch.get(0).id);
+        Assert.assertEquals(Arrays.asList(6L), bad);
+        Assert.assertEquals(file.length(), reader.getOffset());
+        file.delete();
+    }
+
+    @Test
+    public void testSelectiveFilter() throws IOException, InterruptedException {
+        File file = File.createTempFile("tail", ".tsv");
+        file.deleteOnExit();
+        BeanSerializer<Entry> serializer = new BeanSerializer<Entry>(Entry.class);
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 25; i++) {
+            lines.append(i).append("\tSKIP\n");
+        }
+        append(file, lines + "99\tKEEP\n");
+
+        TailReader<Entry> reader = new TailReader<Entry>(serializer, file, null);
+        reader.setBatchSize(10);
+        reader.setPollInterval(60000);
+        reader.setFilter(new RowFilter<Entry>(serializer).equalTo("name", "KEEP"));
+        //rejected lines don't count against batch size, so the kept line is returned at once
+        List<Entry> batch = reader.take(10, TimeUnit.SECONDS);
+        Assert.assertEquals(1, batch.size());
+        Assert.assertEquals(99, batch.get(0).id);
+        Assert.assertEquals(file.length(), reader.getOffset());
+        file.delete();
+    }
+
+    @Test
+    public void testBackupCheckpoint() throws IOException {
+        File file = File.createTempFile("tail", ".tsv");
+        File checkpoint = new File(file.getPath() + ".offset");
+        File backup = new File(checkpoint.getPath() + ".bak");
+        file.deleteOnExit();
+        backup.deleteOnExit();
+        append(file, "1\tONE\n2\tTWO\n");
+        //commit was interrupted after old checkpoint was moved away
+        append(backup, "6\n");
+        TailReader<Entry> reader = new TailReader<Entry>(new BeanSerializer<Entry>(Entry.class), file, checkpoint);
+        Assert.assertEquals(6, reader.getOffset());
+        Assert.assertEquals(2, reader.poll().get(0).id);
+        backup.delete();
+        file.delete();
+    }
+}
@@ -0,0 +1,129 @@
+package com.scalemotion.tsvbean;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class TranscoderTest {
+    public static class Event {
+        @Field
+        long id;
+        @Field
+        String name;
+        @Field
+        Integer value;
+        @Field
+        Date created;
+        @Field
+        BeanSerializerTest.EnumNoName kind;
+    }
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+    private final BeanSerializer<Event> serializer = new BeanSerializer<Event>(Event.class);
+
+    @After
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private String tsv(int rows) {
+        StringBuilder res = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            Event e = new Event();
+            e.id = i;
+            e.name = i % 7 == 0 ? null : "name\u00e9" + i;
+            e.value = i % 3 == 0 ? null : i * 10;
+            e.created = i % 5 == 0 ? null : new Date(1323684481000L + i * 1000L);
+            e.kind = i % 4 == 0 ? null : BeanSerializerTest.EnumNoName.values()[i % 2];
+            res.append(serializer.toString(e)).append('\n');
+        }
+        return res.toString();
+    }
+
+    private byte[] transcode(byte[] in, Transcoder.Format from, Transcoder.Format to, long expected) throws IOException {
+        Transcoder<Event> transcoder = new Transcoder<Event>(serializer, from, to);
+        transcoder.setChunkSize(37);
+        transcoder.setMaxChunksInFlight(2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Assert.assertEquals(expected, transcoder.transcode(new ByteArrayInputStream(in), out, executor));
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        String text = tsv(1000);
+        byte[] binary = transcode(text.getBytes("UTF-8"), Transcoder.Format.TSV, Transcoder.Format.BINARY, 1000);
+        byte[] columnar = transcode(binary, Transcoder.Format.BINARY, Transcoder.Format.COLUMNAR, 1000);
+        byte[] binary2 = transcode(columnar, Transcoder.Format.COLUMNAR, Transcoder.Format.BINARY, 1000);
+        Assert.assertArrayEquals(binary, binary2);
+        byte[] back = transcode(columnar, Transcoder.Format.COLUMNAR, Transcoder.Format.TSV, 1000);
+        Assert.assertEquals(text, new String(back, "UTF-8"));
+    }
+
+    @Test
+    public void testCopy() throws IOException {
+        byte[] binary = transcode(tsv(100).getBytes("UTF-8"), Transcoder.Format.TSV, Transcoder.Format.BINARY, 100);
+        Assert.assertArrayEquals(binary, transcode(binary, Transcoder.Format.BINARY, Transcoder.Format.BINARY, 100));
+        byte[] columnar = transcode(binary, Transcoder.Format.BINARY, Transcoder.Format.COLUMNAR, 100);
+        Assert.assertArrayEquals(columnar, transcode(columnar, Transcoder.Format.COLUMNAR, Transcoder.Format.COLUMNAR, 100));
+        //raw copy doesn't parse records
+        Assert.assertEquals("1\tname\n", new String(transcode("1\tname\r\n".getBytes("UTF-8"), Transcoder.Format.TSV, Transcoder.Format.TSV, 1), "UTF-8"));
+    }
+
+    @Test
+    public void testHeader() throws IOException {
+        Transcoder<Event> transcoder = new Transcoder<Event>(serializer, Transcoder.Format.TSV, Transcoder.Format.TSV);
+        transcoder.setReadHeader(true);
+        transcoder.setWriteHeader(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String body = tsv(10);
+        transcoder.transcode(new ByteArrayInputStream(("x\ty\n" + body).getBytes("UTF-8")), out, executor);
+        Assert.assertEquals("id\tname\tvalue\tcreated\tkind\n" + body, new String(out.toByteArray(), "UTF-8"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMalformedLine() throws IOException {
+        transcode("1\tname\n".getBytes("UTF-8"), Transcoder.Format.TSV, Transcoder.Format.BINARY, 1);
+    }
+
+    @Test
+    public void testLongString() throws IOException {
+        Event e = new Event();
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            name.append((char) ('a' + i % 26));
+        }
+        e.name = name.toString();
+        String text = serializer.toString(e) + "\n";
+        byte[] binary = transcode(text.getBytes("UTF-8"), Transcoder.Format.TSV, Transcoder.Format.BINARY, 1);
+        Assert.assertEquals(text, new String(transcode(binary, Transcoder.Format.BINARY, Transcoder.Format.TSV, 1), "UTF-8"));
+    }
+
+    @Test
+    public void testCorrupt() throws IOException {
+        byte[] binary = transcode(tsv(2).getBytes("UTF-8"), Transcoder.Format.TSV, Transcoder.Format.BINARY, 2);
+        int second = 4 + ((binary[2] & 0xff) << 8 | binary[3] & 0xff);
+        binary[second] = (byte) 0x80;
+        try {
+            transcode(binary, Transcoder.Format.BINARY, Transcoder.Format.TSV, 2);
+            Assert.fail("Negative length should be rejected");
+        } catch (IOException ex) {
+            Assert.assertEquals("Corrupt record at offset " + second + ": bad length " + BinaryHelper.intFromBytes(binary, second), ex.getMessage());
+        }
+        //one record, but the first column is empty
+        byte[] columnar = {0, 0, 0, 1, 0, 0, 0, 0};
+        try {
+            transcode(columnar, Transcoder.Format.COLUMNAR, Transcoder.Format.TSV, 1);
+            Assert.fail("Column shorter than number of records should be rejected");
+        } catch (IOException ex) {
+            Assert.assertTrue(ex.getMessage(), ex.getMessage().startsWith("Corrupt batch at offset 0"));
+        }
+    }
+}